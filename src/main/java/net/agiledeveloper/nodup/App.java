@@ -2,9 +2,22 @@ package net.agiledeveloper.nodup;
 
 import net.agiledeveloper.nodup.bin.Bin;
 import net.agiledeveloper.nodup.bin.DatePathProvider;
+import net.agiledeveloper.nodup.image.DecodeBudget;
+import net.agiledeveloper.nodup.image.HashEngine;
+import net.agiledeveloper.nodup.image.HashEngine.Sampling;
 import net.agiledeveloper.nodup.image.ImageDeduplicator;
-import net.agiledeveloper.nodup.image.SimpleImageProvider;
+import net.agiledeveloper.nodup.image.ImageProvider;
+import net.agiledeveloper.nodup.image.RecursiveImageProvider;
+import net.agiledeveloper.nodup.image.cache.CachingImageProvider;
+import net.agiledeveloper.nodup.image.cache.ImageCache;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+import net.agiledeveloper.nodup.image.processors.BucketScheduler;
+import net.agiledeveloper.nodup.image.processors.CrossFormatProcessor;
 import net.agiledeveloper.nodup.image.processors.ExifProcessor;
+import net.agiledeveloper.nodup.image.processors.ImageProcessor;
+import net.agiledeveloper.nodup.image.similarity.LshCandidates;
+import net.agiledeveloper.nodup.image.similarity.PerceptualProcessor;
+import net.agiledeveloper.nodup.image.similarity.ResizedProcessor;
 import net.agiledeveloper.nodup.ui.GUIDirectoryOpener;
 
 import java.time.Instant;
@@ -17,6 +30,8 @@ import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 import static java.time.format.DateTimeFormatter.ofPattern;
+import static net.agiledeveloper.nodup.image.HashEngine.DEFAULT_SAMPLING;
+import static net.agiledeveloper.nodup.image.HashEngine.FULL_DECODING;
 
 public class App {
 
@@ -24,22 +39,94 @@ public class App {
     public static final Action DEFAULT_ACTION = Action.SCAN;
     public static final Level DEFAULT_LOG_LEVEL = Level.INFO;
     public static final String ROOT_DIR = "nodup";
+    public static final int DEFAULT_DEPTH = 1;
 
     public static final Logger logger = Logger.getLogger(App.class.getSimpleName());
 
 
     public static void main(String[] args) {
-        var bin = new Bin(new DatePathProvider());
-        var imageDeduplicator = new ImageDeduplicator(new ExifProcessor(), new SimpleImageProvider(), bin);
-        var orchestrator = new Orchestrator(imageDeduplicator, new GUIDirectoryOpener());
-
         try {
-            orchestrator.execute(args);
+            var options = Options.parse(args);
+            var bin = new Bin(new DatePathProvider());
+            var hashEngine = new HashEngine(
+                    hashAlgorithm(options),
+                    sampling(options),
+                    options.intValue("--band-height", FULL_DECODING),
+                    DecodeBudget.of(options.sizeValue("--decode-memory", defaultDecodeMemory()))
+            );
+            try (var cache = options.has("--no-cache") ? null : ImageCache.open(ImageCache.CACHE_ROOT, hashEngine)) {
+                var imageProvider = imageProvider(options, hashEngine, cache);
+                var imageProcessor = imageProcessor(options, hashEngine);
+                var imageDeduplicator = new ImageDeduplicator(imageProcessor, imageProvider, bin, hashEngine);
+                var orchestrator = new Orchestrator(imageDeduplicator, new GUIDirectoryOpener());
+
+                orchestrator.execute(args);
+            }
         } catch (IllegalArgumentException exception) {
             failAndExit(exception);
         }
     }
 
+    private static HashAlgorithm hashAlgorithm(Options options) {
+        return options.get("--hash")
+                .map(HashAlgorithm::named)
+                .orElse(HashEngine.DEFAULT_ALGORITHM);
+    }
+
+    private static long defaultDecodeMemory() {
+        return Runtime.getRuntime().maxMemory() / 2;
+    }
+
+    private static Sampling sampling(Options options) {
+        long blockSize = options.sizeValue("--sample-size", DEFAULT_SAMPLING.blockSize());
+        if (blockSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Value of --sample-size is too large: " + blockSize);
+        }
+        return new Sampling((int) blockSize, options.intValue("--samples", DEFAULT_SAMPLING.blockCount()));
+    }
+
+    private static ImageProcessor imageProcessor(Options options, HashEngine hashEngine) {
+        if (options.has("--resized")) {
+            return new ResizedProcessor();
+        }
+        if (options.has("--lsh")) {
+            var candidates = options.get("--lsh")
+                    .map(LshCandidates::parse)
+                    .orElseGet(LshCandidates::new);
+            return new PerceptualProcessor(similarityThreshold(options), candidates);
+        }
+        if (options.has("--similar")) {
+            return new PerceptualProcessor(similarityThreshold(options));
+        }
+        boolean confirm = options.has("--confirm") && hashEngine.algorithm() != HashAlgorithm.SHA256;
+        if (options.has("--any-format")) {
+            return new CrossFormatProcessor(confirm ? HashAlgorithm.SHA256 : null);
+        }
+        int metadataConcurrency = options.intValue("--metadata-io", ExifProcessor.DEFAULT_METADATA_CONCURRENCY);
+        var scheduler = new BucketScheduler(options.intValue("--workers", Runtime.getRuntime().availableProcessors()));
+        return new ExifProcessor(confirm ? HashAlgorithm.SHA256 : null, metadataConcurrency, scheduler);
+    }
+
+    private static int similarityThreshold(Options options) {
+        return options.get("--similar")
+                .map(value -> {
+                    try {
+                        return Integer.parseInt(value.trim());
+                    } catch (NumberFormatException cause) {
+                        throw new IllegalArgumentException("Value of --similar must be a number of bits: " + value, cause);
+                    }
+                })
+                .orElse(PerceptualProcessor.DEFAULT_THRESHOLD);
+    }
+
+    private static ImageProvider imageProvider(Options options, HashEngine hashEngine, ImageCache cache) {
+        int defaultDepth = options.has("-r", "--recursive") ? RecursiveImageProvider.UNLIMITED_DEPTH : DEFAULT_DEPTH;
+        int depth = options.intValue("--depth", defaultDepth);
+        int threads = options.intValue("--threads", Runtime.getRuntime().availableProcessors());
+        var imageProvider = new RecursiveImageProvider(depth, threads, hashEngine);
+        return cache == null ? imageProvider : new CachingImageProvider(imageProvider, cache);
+    }
+
     @SuppressWarnings("java:S106")
     private static void failAndExit(Exception exception) {
         System.err.println("E: " + exception.getMessage());
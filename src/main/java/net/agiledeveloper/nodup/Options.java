@@ -0,0 +1,122 @@
+package net.agiledeveloper.nodup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Single parser of the command line: flags (-r, --recursive), options with a value written --name=value,
+// and positional parameters such as subcommands and directories
+public class Options {
+
+    // Options whose value may also be given as the next argument (e.g., --against photos.index)
+    private static final Set<String> SEPARATE_VALUE_OPTIONS = Set.of("--against");
+
+    private final Map<String, String> values;
+    private final List<String> positionals;
+
+
+    private Options(Map<String, String> values, List<String> positionals) {
+        this.values = values;
+        this.positionals = positionals;
+    }
+
+
+    public static Options parse(String[] arguments) {
+        var values = new LinkedHashMap<String, String>();
+        var positionals = new ArrayList<String>();
+        for (int i = 0; i < arguments.length; i++) {
+            String argument = arguments[i];
+            if (SEPARATE_VALUE_OPTIONS.contains(argument) && i + 1 < arguments.length) {
+                values.put(argument, arguments[++i]);
+            } else if (argument.startsWith("--")) {
+                int separator = argument.indexOf('=');
+                if (separator < 0) {
+                    values.put(argument, "");
+                } else {
+                    values.put(argument.substring(0, separator), argument.substring(separator + 1));
+                }
+            } else if (argument.startsWith("-")) {
+                values.put(argument, "");
+            } else {
+                positionals.add(argument);
+            }
+        }
+        return new Options(values, List.copyOf(positionals));
+    }
+
+    // Flags and options, in the order they were first given
+    public Set<String> names() {
+        return values.keySet();
+    }
+
+    public List<String> positionals() {
+        return positionals;
+    }
+
+    public Optional<String> positional(int index) {
+        return index < positionals.size() ? Optional.of(positionals.get(index)) : Optional.empty();
+    }
+
+    public boolean has(String... names) {
+        for (String name : names) {
+            if (values.containsKey(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Optional<String> get(String name) {
+        return Optional.ofNullable(values.get(name))
+                .filter(value -> !value.isEmpty());
+    }
+
+    public int intValue(String name, int defaultValue) {
+        return get(name)
+                .map(value -> parseInt(name, value))
+                .orElse(defaultValue);
+    }
+
+    public long sizeValue(String name, long defaultValue) {
+        return get(name)
+                .map(value -> parseSize(name, value))
+                .orElse(defaultValue);
+    }
+
+    // Sizes are expressed in bytes, optionally followed by a k, m or g multiplier (e.g., 64k, 1g)
+    private static long parseSize(String name, String value) {
+        String normalized = value.trim().toLowerCase();
+        long multiplier = switch (normalized.isEmpty() ? ' ' : normalized.charAt(normalized.length() - 1)) {
+            case 'k' -> 1024L;
+            case 'm' -> 1024L * 1024;
+            case 'g' -> 1024L * 1024 * 1024;
+            default -> 1L;
+        };
+        String digits = multiplier == 1 ? normalized : normalized.substring(0, normalized.length() - 1);
+        try {
+            long parsed = Long.parseLong(digits) * multiplier;
+            if (parsed < 1) {
+                throw new IllegalArgumentException("Value of %s must be a positive size: %s".formatted(name, value));
+            }
+            return parsed;
+        } catch (NumberFormatException cause) {
+            throw new IllegalArgumentException("Value of %s must be a positive size: %s".formatted(name, value), cause);
+        }
+    }
+
+    private static int parseInt(String name, String value) {
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed < 1) {
+                throw new IllegalArgumentException("Value of %s must be a positive integer: %s".formatted(name, value));
+            }
+            return parsed;
+        } catch (NumberFormatException cause) {
+            throw new IllegalArgumentException("Value of %s must be a positive integer: %s".formatted(name, value), cause);
+        }
+    }
+
+}
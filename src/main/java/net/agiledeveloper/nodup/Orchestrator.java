@@ -1,18 +1,19 @@
 package net.agiledeveloper.nodup;
 
 import net.agiledeveloper.nodup.image.ImageDeduplicator;
+import net.agiledeveloper.nodup.image.index.ImageIndex;
+import net.agiledeveloper.nodup.image.watch.DirectoryWatcher;
 import net.agiledeveloper.nodup.ui.DirectoryOpener;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static java.util.Arrays.asList;
-import static java.util.Arrays.stream;
 import static net.agiledeveloper.nodup.App.*;
 
 public class Orchestrator {
@@ -32,26 +33,87 @@ public class Orchestrator {
 
 
     public void execute(String[] args) {
-        if (isHelpRequest(args)) {
+        var options = Options.parse(args);
+        if (isHelpRequest(options)) {
             printHelp();
-        } else if (isPrintVersion(args)) {
+        } else if (isPrintVersion(options)) {
             printVersion();
-        } else if (isBinCommand(args)) {
-            processBin(args);
+        } else if (isBinCommand(options)) {
+            processBin(options);
+        } else if (isCommand(options, "watch")) {
+            parseArguments(options, Integer.MAX_VALUE);
+            processWatch(options);
+        } else if (isCommand(options, "ingest")) {
+            parseArguments(options, 2);
+            processIngest(options);
+        } else if (isCommand(options, "index")) {
+            parseArguments(options, 2);
+            processIndex(options);
         } else {
-            parseArguments(args);
-            processCommand(args);
+            parseArguments(options, 1);
+            processCommand(options);
         }
     }
 
-    private void processBin(String[] arguments) {
-        if (isOpenBinRequest(arguments)) {
+    private static boolean isCommand(Options options, String command) {
+        return options.positional(0).filter(command::equals).isPresent();
+    }
+
+    private void processWatch(Options options) {
+        List<Path> roots = options.positionals().stream()
+                .skip(1)
+                .map(Paths::get)
+                .map(Orchestrator::requireValid)
+                .toList();
+        if (roots.isEmpty()) {
+            throw new IllegalArgumentException("Missing directory to watch");
+        }
+        var debounce = Duration.ofMillis(options.intValue("--debounce", (int) DirectoryWatcher.DEFAULT_DEBOUNCE.toMillis()));
+        logger.info(() -> "%s duplicates in %s, as soon as they appear".formatted(action, roots));
+        logger.info(() -> "Log level: %s".formatted(logger.getLevel()));
+
+        imageDeduplicator.watch(action, roots, debounce);
+    }
+
+    private void processIngest(Options options) {
+        Path inbox = options.positional(1)
+                .map(Paths::get)
+                .map(Orchestrator::requireValid)
+                .orElseThrow(() -> new IllegalArgumentException("Missing inbox directory to ingest"));
+        Path indexFile = options.get("--against")
+                .map(Paths::get)
+                .orElse(ImageIndex.DEFAULT_INDEX);
+        if (!Files.isRegularFile(indexFile)) {
+            throw new IllegalArgumentException("Could not find specified index: " + indexFile);
+        }
+        logger.info(() -> "%s duplicates of %s in %s".formatted(action, indexFile, inbox));
+        logger.info(() -> "Log level: %s".formatted(logger.getLevel()));
+
+        imageDeduplicator.ingest(action, inbox, indexFile);
+    }
+
+    private void processIndex(Options options) {
+        Path directory = options.positional(1)
+                .map(Paths::get)
+                .map(Orchestrator::requireValid)
+                .orElseThrow(() -> new IllegalArgumentException("Missing directory to index"));
+        Path indexFile = options.get("--output")
+                .map(Paths::get)
+                .orElse(ImageIndex.DEFAULT_INDEX);
+        logger.info(() -> "Indexing %s into %s".formatted(directory, indexFile));
+        logger.info(() -> "Log level: %s".formatted(logger.getLevel()));
+
+        imageDeduplicator.index(directory, indexFile);
+    }
+
+    private void processBin(Options options) {
+        if (options.has("--open")) {
             openBin();
-        } else if (isListBinDirectories(arguments)) {
+        } else if (options.has("--list")) {
             listBinDirectories();
-        } else if (isClearBin(arguments)) {
+        } else if (options.has("--clear")) {
             imageDeduplicator.bin().clear();
-        } else if (isPrintBinPathRequest(arguments)) {
+        } else if (options.has("--path")) {
             printBinPath();
         } else {
             printHelp();
@@ -63,21 +125,12 @@ public class Orchestrator {
         System.out.println(imageDeduplicator.bin().root());
     }
 
-    private boolean isPrintBinPathRequest(String[] arguments) {
-        return asList(arguments).contains("--path");
+    private static boolean isBinCommand(Options options) {
+        return options.positionals().contains("bin");
     }
 
-    private boolean isBinCommand(String[] arguments) {
-        return asList(arguments).contains("bin");
-    }
-
-    private boolean isClearBin(String[] arguments) {
-        return asList(arguments).contains("--clear");
-    }
-
-    private boolean isPrintVersion(String[] arguments) {
-        var list = asList(arguments);
-        return list.contains("--version") || list.contains("-v");
+    private static boolean isPrintVersion(Options options) {
+        return options.has("--version", "-v");
     }
 
     @SuppressWarnings("java:S106")
@@ -92,12 +145,8 @@ public class Orchestrator {
         directories.forEach(directory -> System.out.println("- " + directory.toAbsolutePath()));
     }
 
-    private boolean isListBinDirectories(String[] arguments) {
-        return asList(arguments).contains("--list");
-    }
-
-    private void processCommand(String[] args) {
-        Path directory = requireValid(readDirectory(args));
+    private void processCommand(Options options) {
+        Path directory = requireValid(readDirectory(options));
         logConfig(directory);
 
         imageDeduplicator.execute(action, directory);
@@ -113,17 +162,12 @@ public class Orchestrator {
         return directory;
     }
 
-    private static boolean isOpenBinRequest(String[] arguments) {
-        return asList(arguments).contains("--open");
-    }
-
     private void openBin() {
         directoryOpener.open(imageDeduplicator.bin().root());
     }
 
-    private static boolean isHelpRequest(String[] args) {
-        return stream(args)
-                .anyMatch(argument -> argument.equals("-h") || argument.equals("--help"));
+    private static boolean isHelpRequest(Options options) {
+        return options.has("-h", "--help");
     }
 
     @SuppressWarnings("java:S106")
@@ -137,6 +181,12 @@ Positional parameters:
 
 Subcommands:
   update           Update to the latest version
+  index <dir>      Hash the images of a directory into an index file
+      --output     Set the index file (e.g., --output=photos.index). Defaults to ~/nodup/index/library.index.
+  ingest <inbox>   Find the images of an inbox that are already in an index, without scanning the library
+      --against    Set the index to check against (e.g., --against photos.index). Defaults to ~/nodup/index/library.index.
+  watch <dir>...   Keep watching directories and their subdirectories for new duplicates
+      --debounce   Set the delay in milliseconds without changes before a file is checked. Defaults to 2000.
   bin
       --list       List all bin directories
       --path       Print bin path
@@ -145,8 +195,24 @@ Subcommands:
 
 Options:
   --log            Set the logging level (e.g., severe, warning, info, fine, finer, finest).
+  --depth          Set the maximum directory depth to scan (e.g., --depth=3). Defaults to 1.
+  --threads        Set the number of threads scanning directories. Defaults to the number of processors.
+  --workers        Set the number of threads hashing buckets of potential duplicates. Defaults to the number of processors.
+  --hash           Set the pixel hash algorithm (sha256, xxh64, murmur3_128). Defaults to sha256.
+  --sample-size    Set the size of the file blocks sampled before full hashing (e.g., 64k). Defaults to 16k.
+  --samples        Set the number of blocks sampled between the head and tail of a file. Defaults to 4.
+  --band-height    Decode and hash large images in bands of N rows to bound memory usage (e.g., --band-height=512).
+  --decode-memory  Set the memory available to concurrent decodes (e.g., --decode-memory=1g). Defaults to half the heap.
+  --metadata-io    Set the number of files whose metadata is read concurrently (e.g., --metadata-io=16). Defaults to 64.
+  --similar        Group visually similar images, whose 64-bit fingerprints differ by at most N bits (e.g., --similar=6). Defaults to 10.
+  --lsh            Find similar images through B bands of R fingerprint bits, faster but missing a few pairs (e.g., --lsh=64x16). Defaults to 32x16.
 
 Flags:
+  -r, --recursive  Scan all subdirectories, regardless of their depth.
+      --confirm    Confirm collisions found with a fast hash algorithm using sha256.
+      --no-cache   Neither read nor update the cache of file metadata and hashes kept in ~/nodup/cache.
+      --resized    Group resized copies of images, whose aspect ratios and downscaled thumbnails match.
+      --any-format Find images with identical pixels regardless of their file format, such as a png and a bmp copy.
   -c, --copy       Copy files in the directory.
   -m, --move       Move files in the directory.
   -s, --scan       Scan the directory and display file information.
@@ -155,10 +221,8 @@ Flags:
 """);
     }
 
-    private static Path readDirectory(String[] args) {
-        boolean isDefined = args.length > 0 && !args[0].startsWith("-");
-        String directory = isDefined ? args[0] : System.getProperty("user.dir");
-        return Paths.get(directory);
+    private static Path readDirectory(Options options) {
+        return Paths.get(options.positional(0).orElse(System.getProperty("user.dir")));
     }
 
     private void logConfig(Path directory) {
@@ -166,29 +230,21 @@ Flags:
         logger.info(() -> "Log level: %s".formatted(logger.getLevel()));
     }
 
-    private void parseArguments(String[] arguments) {
-        argumentValidator.validate(arguments);
+    private void parseArguments(Options options, int positionalParameters) {
+        argumentValidator.validate(options, positionalParameters);
 
-        processLogLevel(arguments);
+        processLogLevel(options);
 
-        for (String argument : arguments) {
-            action = readAction(argument);
-        }
+        action = readAction(options);
     }
 
-    private static void processLogLevel(String[] arguments) {
-        Optional<Level> specifiedLevel = parseLogLevel(arguments);
-        Level levelToApply = specifiedLevel.orElse(DEFAULT_LOG_LEVEL);
+    private static void processLogLevel(Options options) {
+        Level levelToApply = options.get("--log")
+                .map(Orchestrator::readLogLevel)
+                .orElse(DEFAULT_LOG_LEVEL);
         setLogLevel(levelToApply);
     }
 
-    private static Optional<Level> parseLogLevel(String[] arguments) {
-        return stream(arguments)
-                .filter(argument -> argument.startsWith("--log="))
-                .findFirst()
-                .map(Orchestrator::parseLogLevel);
-    }
-
     public static void setLogLevel(Level level) {
         logger.setLevel(level);
         for (var handler : Logger.getLogger("").getHandlers()) {
@@ -197,11 +253,6 @@ Flags:
         }
     }
 
-    private static Level parseLogLevel(String argument) {
-        String levelString = argument.substring("--log=".length());
-        return readLogLevel(levelString);
-    }
-
     public static Level readLogLevel(String levelName) {
         if (levelName == null) {
             throw new IllegalArgumentException("Level name cannot be null");
@@ -213,48 +264,94 @@ Flags:
         }
     }
 
-    private static Action readAction(String argument) {
-        return switch (argument) {
-            case "-c", "--copy" -> Action.COPY;
-            case "-m", "--move" -> Action.MOVE;
-            case "-s", "--scan" -> Action.SCAN;
-            default -> DEFAULT_ACTION;
-        };
+    // The last action given wins
+    private static Action readAction(Options options) {
+        Action action = DEFAULT_ACTION;
+        for (String name : options.names()) {
+            action = switch (name) {
+                case "-c", "--copy" -> Action.COPY;
+                case "-m", "--move" -> Action.MOVE;
+                case "-s", "--scan" -> Action.SCAN;
+                default -> action;
+            };
+        }
+        return action;
     }
 
     private static class ArgumentValidator {
 
-        private static final List<String> SUPPORTED = List.of(
+        private static final List<String> SUPPORTED_FLAGS = List.of(
                 "--version", "-v",
                 "--help",    "-h",
                 "--scan",    "-s",
                 "--copy",    "-c",
                 "--move",    "-m",
+                "--recursive", "-r",
+                "--confirm",
+                "--no-cache",
+                "--similar",
+                "--lsh",
+                "--resized",
+                "--any-format",
+                "--log",
+                "--open", "--list", "--clear", "--path"
+        );
+
+        // Options written --name=value
+        private static final List<String> SUPPORTED_OPTIONS = List.of(
                 "--log",
-                "bin", "--open", "--list", "--clear", "--path"
+                "--depth",
+                "--threads",
+                "--workers",
+                "--hash",
+                "--sample-size",
+                "--samples",
+                "--band-height",
+                "--decode-memory",
+                "--metadata-io",
+                "--output",
+                "--against",
+                "--debounce",
+                "--similar",
+                "--lsh"
         );
 
         private ArgumentValidator() { }
 
-        private void validate(String[] arguments) {
-            for (int i = 0; i < arguments.length; i++) {
-                String argument = arguments[i];
-                if (!isSupported(i, argument)) {
-                    throw new IllegalArgumentException("Unknown argument: " + argument);
+        private void validate(Options options, int positionalParameters) {
+            for (String name : options.names()) {
+                boolean hasValue = options.get(name).isPresent();
+                if (!hasValue && !SUPPORTED_FLAGS.contains(name) && SUPPORTED_OPTIONS.contains(name)) {
+                    throw new IllegalArgumentException("Missing value of %s (e.g., %s=value)".formatted(name, name));
+                }
+                if (hasValue ? !SUPPORTED_OPTIONS.contains(name) : !SUPPORTED_FLAGS.contains(name)) {
+                    throw new IllegalArgumentException("Unknown argument: " + name);
                 }
             }
+            if (options.positionals().size() > positionalParameters) {
+                throw new IllegalArgumentException("Unknown argument: " + options.positionals().get(positionalParameters));
+            }
+            validateModes(options);
         }
 
-        private boolean isSupported(int i, String argument) {
-            return isPositionalParameter(i, argument) || supports(argument);
-        }
-
-        private boolean supports(String argument) {
-            return SUPPORTED.contains(argument) || argument.startsWith("--log=");
-        }
-
-        private boolean isPositionalParameter(int i, String argument) {
-            return i == 0 && !argument.startsWith("-");
+        // Detection modes cannot be combined; --lsh only changes how --similar finds candidates
+        private void validateModes(Options options) {
+            var modes = new ArrayList<String>();
+            if (options.has("--similar", "--lsh")) {
+                modes.add(options.has("--lsh") ? "--lsh" : "--similar");
+            }
+            if (options.has("--resized")) {
+                modes.add("--resized");
+            }
+            if (options.has("--any-format")) {
+                modes.add("--any-format");
+            }
+            if (modes.size() > 1) {
+                throw new IllegalArgumentException("Options %s cannot be combined".formatted(String.join(" and ", modes)));
+            }
+            if (options.has("--confirm") && !modes.isEmpty() && !modes.contains("--any-format")) {
+                throw new IllegalArgumentException("Option --confirm only applies to identical pixels, not to " + modes.get(0));
+            }
         }
 
     }
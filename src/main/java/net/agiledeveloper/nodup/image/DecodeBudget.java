@@ -0,0 +1,118 @@
+package net.agiledeveloper.nodup.image;
+
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ManagedBlocker;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Admits decodes against a memory budget, so that concurrent decodes cannot exhaust the heap
+public class DecodeBudget {
+
+    private static final long KIBIBYTE = 1024;
+    private static final int UNLIMITED = -1;
+
+    private final int capacity;
+    private final Semaphore permits;
+    private final LongAdder admissions = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder waitingNanos = new LongAdder();
+
+
+    private DecodeBudget(int capacity) {
+        this.capacity = capacity;
+        this.permits = capacity == UNLIMITED ? null : new Semaphore(capacity, true);
+    }
+
+
+    public static DecodeBudget unlimited() {
+        return new DecodeBudget(UNLIMITED);
+    }
+
+    public static DecodeBudget of(long bytes) {
+        if (bytes < KIBIBYTE) {
+            throw new IllegalArgumentException("Decode memory must be at least 1k: " + bytes);
+        }
+        return new DecodeBudget((int) Math.min(Integer.MAX_VALUE, bytes / KIBIBYTE));
+    }
+
+    // Decodes larger than the whole budget are admitted alone rather than never
+    public <T> T admit(long estimatedBytes, Supplier<T> decode) {
+        if (permits == null) {
+            return decode.get();
+        }
+        int requested = Math.clamp(Math.ceilDiv(estimatedBytes, KIBIBYTE), 1, capacity);
+        acquire(requested);
+        try {
+            admissions.increment();
+            return decode.get();
+        } finally {
+            permits.release(requested);
+        }
+    }
+
+    public boolean isLimited() {
+        return permits != null;
+    }
+
+    @Override
+    public String toString() {
+        if (!isLimited()) {
+            return "Decode memory: unlimited";
+        }
+        return "Decode memory: %s MiB, %s decodes admitted, %s waited for %s ms".formatted(
+                capacity / KIBIBYTE, admissions.sum(), waits.sum(), Duration.ofNanos(waitingNanos.sum()).toMillis()
+        );
+    }
+
+    private void acquire(int requested) {
+        if (permits.tryAcquire(requested)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            ForkJoinPool.managedBlock(new PermitBlocker(permits, requested));
+        } catch (InterruptedException cause) {
+            Thread.currentThread().interrupt();
+            throw new Image.ReadException(cause);
+        }
+        waits.increment();
+        waitingNanos.add(System.nanoTime() - start);
+    }
+
+
+    // Lets a fork-join pool compensate for workers blocked on the budget
+    private static class PermitBlocker implements ManagedBlocker {
+
+        private final Semaphore permits;
+        private final int requested;
+        private boolean acquired;
+
+
+        private PermitBlocker(Semaphore permits, int requested) {
+            this.permits = permits;
+            this.requested = requested;
+        }
+
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if (!acquired) {
+                permits.acquire(requested);
+                acquired = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            if (!acquired) {
+                acquired = permits.tryAcquire(requested);
+            }
+            return acquired;
+        }
+
+    }
+
+}
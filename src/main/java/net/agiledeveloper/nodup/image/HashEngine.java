@@ -0,0 +1,347 @@
+package net.agiledeveloper.nodup.image;
+
+import net.agiledeveloper.nodup.image.hash.Hash;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+import net.agiledeveloper.nodup.image.hash.Hasher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static net.agiledeveloper.nodup.App.logger;
+
+public class HashEngine {
+
+    private static final int CHUNK_PIXELS = 16 * 1024;
+    private static final int PROBE_ROWS = 32;
+    private static final long MAPPING_SIZE = 256L * 1024 * 1024;
+    private static final ThreadLocal<Map<HashAlgorithm, DigestBuffer>> DIGEST_BUFFERS =
+            ThreadLocal.withInitial(() -> new EnumMap<>(HashAlgorithm.class));
+
+    public static final HashAlgorithm DEFAULT_ALGORITHM = HashAlgorithm.SHA256;
+    public static final Sampling DEFAULT_SAMPLING = new Sampling(16 * 1024, 4);
+    public static final int FULL_DECODING = 0;
+
+    private final HashAlgorithm algorithm;
+    private final Sampling sampling;
+    private final int bandHeight;
+    private final DecodeBudget decodeBudget;
+    private final Timings pixelTimings = new Timings("Hashed", "images");
+    private final Timings contentTimings = new Timings("Hashed", "files");
+    private final Timings sampleTimings = new Timings("Hashed", "file samples");
+    private final Timings comparisonTimings = new Timings("Compared", "image pairs");
+
+
+    public HashEngine() {
+        this(DEFAULT_ALGORITHM);
+    }
+
+    public HashEngine(HashAlgorithm algorithm) {
+        this(algorithm, DEFAULT_SAMPLING);
+    }
+
+    public HashEngine(HashAlgorithm algorithm, Sampling sampling) {
+        this(algorithm, sampling, FULL_DECODING);
+    }
+
+    public HashEngine(HashAlgorithm algorithm, Sampling sampling, int bandHeight) {
+        this(algorithm, sampling, bandHeight, DecodeBudget.unlimited());
+    }
+
+    // Images taller than bandHeight rows are decoded and hashed one band at a time
+    public HashEngine(HashAlgorithm algorithm, Sampling sampling, int bandHeight, DecodeBudget decodeBudget) {
+        this.algorithm = algorithm;
+        this.sampling = sampling;
+        this.bandHeight = bandHeight;
+        this.decodeBudget = decodeBudget;
+    }
+
+
+    public HashAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    public Sampling sampling() {
+        return sampling;
+    }
+
+    public Hash hash(Image image) {
+        return hash(image, algorithm);
+    }
+
+    public Hash hash(Image image, HashAlgorithm algorithm) {
+        return decodeBudget.admit(decodeEstimate(image), () -> {
+            long start = System.nanoTime();
+            Hash hash = isStriped(image) ? digestBands(image, algorithm) : digest(pixelsOf(image), algorithm);
+            var elapsed = pixelTimings.record(start);
+            logger.fine(() -> "Hashed %s with %s in %s ms".formatted(image, algorithm, elapsed.toMillis()));
+            return hash;
+        });
+    }
+
+    public DecodeBudget decodeBudget() {
+        return decodeBudget;
+    }
+
+    private long decodeEstimate(Image image) {
+        return decodeEstimate(image, isStriped(image) ? bandHeight : image.height());
+    }
+
+    // A decode holds both the decoded raster and its ARGB copy
+    private static long decodeEstimate(Image image, int rows) {
+        return 2L * image.width() * rows * Integer.BYTES;
+    }
+
+    // Images that differ usually do so from the top rows: a first thin band is compared before the rest is decoded
+    public boolean samePixels(Image a, Image b) {
+        if (!a.hasSize(b)) {
+            return false;
+        }
+        long start = System.nanoTime();
+        int probeRows = Math.min(PROBE_ROWS, a.height());
+        int rows = isStriped(a) ? bandHeight : a.height();
+        boolean same = decodeBudget.admit(2 * decodeEstimate(a, probeRows), () -> sameBands(a, b, probeRows, 1))
+                && (probeRows == a.height() || decodeBudget.admit(2 * decodeEstimate(a, rows), () -> sameBands(a, b, rows, Integer.MAX_VALUE)));
+        var elapsed = comparisonTimings.record(start);
+        logger.fine(() -> "Compared %s with %s in %s ms".formatted(a, b, elapsed.toMillis()));
+        return same;
+    }
+
+    private static boolean sameBands(Image a, Image b, int bandHeight, int maxBands) {
+        try (var bandsA = a.bands(bandHeight); var bandsB = b.bands(bandHeight)) {
+            for (int band = 0; band < maxBands && bandsA.next(); band++) {
+                if (!bandsB.next() || !Arrays.equals(
+                        bandsA.pixels(), bandsA.offset(), bandsA.offset() + bandsA.length(),
+                        bandsB.pixels(), bandsB.offset(), bandsB.offset() + bandsB.length())) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException cause) {
+            throw new Image.ReadException(cause);
+        }
+    }
+
+    public Hash hashContent(Path path) {
+        return hashContent(path, algorithm);
+    }
+
+    public Hash hashContent(Path path, HashAlgorithm algorithm) {
+        long start = System.nanoTime();
+        Hash hash = Hash.of(digestBuffer(algorithm).digest(path));
+        var elapsed = contentTimings.record(start);
+        logger.finer(() -> "Hashed content of %s with %s in %s ms".formatted(path, algorithm, elapsed.toMillis()));
+        return hash;
+    }
+
+    public Hash hashSample(Path path) {
+        long start = System.nanoTime();
+        Hash hash = Hash.of(digestBuffer(algorithm).digest(path, sampling));
+        var elapsed = sampleTimings.record(start);
+        logger.finer(() -> "Hashed samples of %s in %s ms".formatted(path, elapsed.toMillis()));
+        return hash;
+    }
+
+    public Statistics sampleStatistics() {
+        return sampleTimings.statistics();
+    }
+
+    public Statistics pixelStatistics() {
+        return pixelTimings.statistics();
+    }
+
+    public Statistics contentStatistics() {
+        return contentTimings.statistics();
+    }
+
+    public Statistics comparisonStatistics() {
+        return comparisonTimings.statistics();
+    }
+
+    private boolean isStriped(Image image) {
+        return bandHeight != FULL_DECODING && image.height() > bandHeight;
+    }
+
+    private Hash digestBands(Image image, HashAlgorithm algorithm) {
+        var digestBuffer = digestBuffer(algorithm);
+        try (var bands = image.bands(bandHeight)) {
+            while (bands.next()) {
+                digestBuffer.update(bands.pixels(), bands.offset(), bands.length());
+            }
+            return Hash.of(digestBuffer.finish());
+        } catch (IOException | RuntimeException exception) {
+            digestBuffer.finish();
+            throw exception instanceof Image.ReadException readException ? readException : new Image.ReadException(exception);
+        }
+    }
+
+    static Hash digest(int[] pixels, HashAlgorithm algorithm) {
+        return Hash.of(digestBuffer(algorithm).digest(pixels));
+    }
+
+    private static DigestBuffer digestBuffer(HashAlgorithm algorithm) {
+        return DIGEST_BUFFERS.get().computeIfAbsent(algorithm, DigestBuffer::new);
+    }
+
+    private static int[] pixelsOf(Image image) {
+        try {
+            return image.pixels();
+        } catch (IOException cause) {
+            throw new Image.ReadException(cause);
+        }
+    }
+
+
+
+    private static class DigestBuffer {
+
+        private final Hasher hasher;
+        private final ByteBuffer bytes = ByteBuffer.allocate(CHUNK_PIXELS * Integer.BYTES);
+        private ByteBuffer sample = ByteBuffer.allocate(0);
+        private final IntBuffer pixels = bytes.asIntBuffer();
+
+
+        private DigestBuffer(HashAlgorithm algorithm) {
+            this.hasher = algorithm.newHasher();
+        }
+
+
+        private byte[] digest(int[] source) {
+            update(source, 0, source.length);
+            return finish();
+        }
+
+        // Pixels are packed big-endian, in chunks, so the digest matches a byte-per-byte update
+        private void update(int[] source, int from, int count) {
+            int end = from + count;
+            for (int offset = from; offset < end; offset += CHUNK_PIXELS) {
+                int length = Math.min(CHUNK_PIXELS, end - offset);
+                pixels.clear();
+                pixels.put(source, offset, length);
+                hasher.update(bytes.array(), 0, length * Integer.BYTES);
+            }
+        }
+
+        private byte[] finish() {
+            return hasher.digest();
+        }
+
+        private byte[] digest(Path file) {
+            try (var channel = FileChannel.open(file, READ)) {
+                long size = channel.size();
+                for (long position = 0; position < size; position += MAPPING_SIZE) {
+                    hasher.update(channel.map(READ_ONLY, position, Math.min(MAPPING_SIZE, size - position)));
+                }
+                return hasher.digest();
+            } catch (IOException cause) {
+                hasher.digest();
+                throw new Image.ReadException(cause);
+            }
+        }
+
+
+        // Hashes the head, the tail and evenly spaced blocks in between, along with the file size
+        private byte[] digest(Path file, Sampling sampling) {
+            try (var channel = FileChannel.open(file, READ)) {
+                long size = channel.size();
+                hasher.update(ByteBuffer.allocate(Long.BYTES).putLong(0, size));
+                long lastBlock = Math.max(0, size - sampling.blockSize());
+                int blocks = sampling.blockCount() + 2;
+                long previousEnd = 0;
+                for (int i = 0; i < blocks; i++) {
+                    long position = Math.max(previousEnd, lastBlock * i / (blocks - 1));
+                    previousEnd = readBlock(channel, position, sampling.blockSize());
+                }
+                return hasher.digest();
+            } catch (IOException cause) {
+                hasher.digest();
+                throw new Image.ReadException(cause);
+            }
+        }
+
+        private long readBlock(FileChannel channel, long position, int blockSize) throws IOException {
+            if (sample.capacity() < blockSize) {
+                sample = ByteBuffer.allocate(blockSize);
+            }
+            sample.clear().limit(blockSize);
+            long offset = position;
+            int read;
+            while (sample.hasRemaining() && (read = channel.read(sample, offset)) > 0) {
+                offset += read;
+            }
+            hasher.update(sample.flip());
+            return offset;
+        }
+
+    }
+
+    private static class Timings {
+
+        private final String action;
+        private final String subject;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator slowestNanos = new LongAccumulator(Long::max, 0);
+
+
+        private Timings(String action, String subject) {
+            this.action = action;
+            this.subject = subject;
+        }
+
+
+        private Duration record(long start) {
+            long elapsed = System.nanoTime() - start;
+            count.increment();
+            nanos.add(elapsed);
+            slowestNanos.accumulate(elapsed);
+            return Duration.ofNanos(elapsed);
+        }
+
+        private Statistics statistics() {
+            return new Statistics(
+                    action,
+                    subject,
+                    count.sum(),
+                    Duration.ofNanos(nanos.sum()),
+                    Duration.ofNanos(slowestNanos.get())
+            );
+        }
+
+    }
+
+
+    public record Sampling(int blockSize, int blockCount) {
+
+        public Sampling {
+            if (blockSize < 1 || blockCount < 0) {
+                throw new IllegalArgumentException("Invalid sampling: %s blocks of %s bytes".formatted(blockCount, blockSize));
+            }
+        }
+    }
+
+    public record Statistics(String action, String subject, long count, Duration total, Duration slowest) {
+
+        public Duration average() {
+            return count == 0 ? Duration.ZERO : total.dividedBy(count);
+        }
+
+        @Override
+        public String toString() {
+            return "%s %s %s in %s ms (average: %s ms, slowest: %s ms)".formatted(
+                    action, count, subject, total.toMillis(), average().toMillis(), slowest.toMillis()
+            );
+        }
+    }
+
+}
@@ -1,29 +1,101 @@
 package net.agiledeveloper.nodup.image;
 
+import net.agiledeveloper.nodup.image.hash.Hash;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+import net.agiledeveloper.nodup.image.header.ImageHeader;
+import net.agiledeveloper.nodup.image.header.ImageHeaders;
+
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
 import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static net.agiledeveloper.nodup.App.logger;
 
 public class IOImage implements Image {
 
     private final Path path;
-    private String hash;
-    private Dimension dimension;
+    private final HashEngine hashEngine;
+    private volatile Hash hash;
+    private volatile Hash contentHash;
+    private volatile Hash sampleHash;
+    private volatile Dimension dimension;
     private String format;
     private Long weight;
 
 
     public IOImage(Path path) {
+        this(path, new HashEngine());
+    }
+
+    public IOImage(Path path, HashEngine hashEngine) {
         this.path = path;
+        this.hashEngine = hashEngine;
     }
 
     @Override
-    public String hash() {
-        return hash;
+    public Hash hash() {
+        Hash result = hash;
+        if (result == null) {
+            synchronized (this) {
+                result = hash;
+                if (result == null) {
+                    result = hashEngine.hash(this);
+                    hash = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Hash hash(HashAlgorithm algorithm) {
+        return algorithm == hashEngine.algorithm() ? hash() : hashEngine.hash(this, algorithm);
+    }
+
+    @Override
+    public boolean hasSamePixels(Image other) {
+        return hashEngine.samePixels(this, other);
+    }
+
+    @Override
+    public Optional<Hash> contentHash() {
+        if (contentHash == null) {
+            contentHash = readOptionally(() -> hashEngine.hashContent(path));
+        }
+        return Optional.ofNullable(contentHash);
+    }
+
+    @Override
+    public Optional<Hash> contentHash(HashAlgorithm algorithm) {
+        if (algorithm == hashEngine.algorithm()) {
+            return contentHash();
+        }
+        return Optional.ofNullable(readOptionally(() -> hashEngine.hashContent(path, algorithm)));
+    }
+
+    @Override
+    public Optional<Hash> sampleHash() {
+        if (sampleHash == null) {
+            sampleHash = readOptionally(() -> hashEngine.hashSample(path));
+        }
+        return Optional.ofNullable(sampleHash);
+    }
+
+    private Hash readOptionally(Supplier<Hash> hashFunction) {
+        try {
+            return hashFunction.get();
+        } catch (Image.ReadException exception) {
+            logger.fine(() -> "Could not read %s: %s".formatted(path, exception.getMessage()));
+            return null;
+        }
     }
 
     @Override
@@ -59,11 +131,47 @@ public class IOImage implements Image {
     @Override
     public int[] pixels() throws IOException {
         BufferedImage image = ImageIO.read(path.toFile());
-        var pixels = new int[width() * height()];
-        image.getRGB(0, 0, width(), height(), pixels, 0, width());
+        if (image == null) {
+            throw new Image.ReadException("No suitable ImageReader found for " + path);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        var pixels = new int[width * height];
+        image.getRGB(0, 0, width, height, pixels, 0, width);
         return pixels;
     }
 
+    // Subsampled so as to keep at least 4x4 samples per thumbnail pixel
+    @Override
+    public int[] thumbnail(int width, int height) throws IOException {
+        return read(reader -> {
+            int subsampling = Math.max(1, Math.min(reader.getWidth(0) / (4 * width), reader.getHeight(0) / (4 * height)));
+            BufferedImage image = readSubsampled(reader, subsampling, subsampling);
+            int decodedWidth = image.getWidth();
+            int decodedHeight = image.getHeight();
+            var pixels = image.getRGB(0, 0, decodedWidth, decodedHeight, null, 0, decodedWidth);
+            return Thumbnails.luminance(pixels, decodedWidth, decodedHeight, width, height);
+        });
+    }
+
+    // Only the sampled pixels are converted, decoders skip whatever their format allows them to skip
+    @Override
+    public int[] pixelSample(int columns, int rows) throws IOException {
+        return read(reader -> {
+            BufferedImage image = readSubsampled(
+                    reader,
+                    Thumbnails.step(reader.getWidth(0), columns),
+                    Thumbnails.step(reader.getHeight(0), rows)
+            );
+            return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        });
+    }
+
+    @Override
+    public PixelBands bands(int bandHeight) throws IOException {
+        return new ReaderBands(path, bandHeight);
+    }
+
     @Override
     public Path path() {
         return path;
@@ -80,18 +188,29 @@ public class IOImage implements Image {
         }
     }
 
+    // Common formats are recognized from their header bytes; ImageIO is only opened for the others
     public void loadMetadata() {
-        var file = path.toFile();
-        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
-            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
-            if (!readers.hasNext()) {
-                throw new Image.ReadException("No suitable ImageReader found for " + file);
-            }
-            ImageReader reader = readers.next();
-            reader.setInput(in);
+        Optional<ImageHeader> header;
+        try {
+            header = ImageHeaders.read(path);
+        } catch (IOException cause) {
+            throw new Image.ReadException(cause);
+        }
+        if (header.isEmpty()) {
+            loadMetadataWithImageIO();
+            return;
+        }
+        format = header.get().format();
+        dimension = new Dimension(header.get().width(), header.get().height());
+    }
+
+    private void loadMetadataWithImageIO() {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            ImageReader reader = openReader(in, path);
             var width = reader.getWidth(0);
             var height = reader.getHeight(0);
             format = reader.getFormatName();
+            // Published last: a non-null dimension guarantees that format is visible too
             dimension = new Dimension(width, height);
             reader.dispose();
         } catch (IOException | IllegalArgumentException cause) {
@@ -99,4 +218,117 @@ public class IOImage implements Image {
         }
     }
 
+    private <T> T read(ReaderFunction<T> function) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            ImageReader reader = openReader(in, path);
+            try {
+                return function.apply(reader);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IllegalArgumentException cause) {
+            throw new Image.ReadException(cause);
+        }
+    }
+
+    // Only every n-th pixel of every m-th row is decoded, taken at the center of each n x m block rather than at its corner
+    private static BufferedImage readSubsampled(ImageReader reader, int xStep, int yStep) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(xStep, yStep, xStep / 2, yStep / 2);
+        return reader.read(0, param);
+    }
+
+    private static ImageReader openReader(ImageInputStream in, Path path) {
+        if (in == null) {
+            throw new Image.ReadException("Could not open " + path);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            throw new Image.ReadException("No suitable ImageReader found for " + path);
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(in);
+        return reader;
+    }
+
+
+    // Decodes one band of rows at a time, so that only a band is ever held in memory
+    private static class ReaderBands implements PixelBands {
+
+        private final ImageInputStream in;
+        private final ImageReader reader;
+        private final int width;
+        private final int height;
+        private final int bandHeight;
+        private int[] pixels = new int[0];
+        private int y;
+        private int length;
+
+
+        private ReaderBands(Path path, int bandHeight) throws IOException {
+            this.in = ImageIO.createImageInputStream(path.toFile());
+            try {
+                this.reader = openReader(in, path);
+                this.width = reader.getWidth(0);
+                this.height = reader.getHeight(0);
+            } catch (IOException | RuntimeException exception) {
+                if (in != null) {
+                    in.close();
+                }
+                throw exception;
+            }
+            this.bandHeight = Math.max(1, bandHeight);
+        }
+
+
+        @Override
+        public boolean next() throws IOException {
+            if (y >= height) {
+                length = 0;
+                return false;
+            }
+            int rows = Math.min(bandHeight, height - y);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(new Rectangle(0, y, width, rows));
+            BufferedImage band = reader.read(0, param);
+            length = width * rows;
+            if (pixels.length < length) {
+                pixels = new int[length];
+            }
+            band.getRGB(0, 0, width, rows, pixels, 0, width);
+            y += rows;
+            return true;
+        }
+
+        @Override
+        public int[] pixels() {
+            return pixels;
+        }
+
+        @Override
+        public int offset() {
+            return 0;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.dispose();
+            in.close();
+        }
+
+    }
+
+
+    @FunctionalInterface
+    private interface ReaderFunction<T> {
+
+        T apply(ImageReader reader) throws IOException;
+
+    }
+
 }
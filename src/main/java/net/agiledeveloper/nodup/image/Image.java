@@ -1,9 +1,12 @@
 package net.agiledeveloper.nodup.image;
 
+import net.agiledeveloper.nodup.image.hash.Hash;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+
 import java.io.IOException;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Optional;
 
 public interface Image {
 
@@ -23,22 +26,48 @@ public interface Image {
 
     int[] pixels() throws IOException;
 
+    // Luminance of the image scaled down to width x height, see Thumbnails
+    default int[] thumbnail(int width, int height) throws IOException {
+        return Thumbnails.luminance(pixels(), width(), height(), width, height);
+    }
+
+    // Exact pixels sampled on a grid of about columns x rows cells, see Thumbnails
+    default int[] pixelSample(int columns, int rows) throws IOException {
+        return Thumbnails.sample(pixels(), width(), height(), columns, rows);
+    }
+
+    default PixelBands bands(int bandHeight) throws IOException {
+        return PixelBands.of(pixels(), width(), bandHeight);
+    }
+
     default boolean hasSize(Image other) {
         return other.dimension().equals(dimension());
     }
 
-    default String hash() {
-        var messageDigest = getMessageDigest();
-        var pixels = getPixels();
+    default boolean hasSamePixels(Image other) {
+        return hasSize(other) && Arrays.equals(getPixels(), other.getPixels());
+    }
 
-        for (int pixel : pixels) {
-            messageDigest.update((byte) (pixel >>> 24));
-            messageDigest.update((byte) (pixel >>> 16));
-            messageDigest.update((byte) (pixel >>> 8));
-            messageDigest.update((byte) pixel);
-        }
+    default Hash hash() {
+        return hash(HashEngine.DEFAULT_ALGORITHM);
+    }
+
+    default Hash hash(HashAlgorithm algorithm) {
+        return HashEngine.digest(getPixels(), algorithm);
+    }
 
-        return toHexadecimal(messageDigest.digest()).toString();
+    default Optional<Hash> contentHash() {
+        return contentHash(HashEngine.DEFAULT_ALGORITHM);
+    }
+
+    // Hash of the raw file bytes, when the underlying file can be read
+    default Optional<Hash> contentHash(HashAlgorithm algorithm) {
+        return Optional.empty();
+    }
+
+    // Cheap hash of a few blocks of the file: different samples imply different bytes
+    default Optional<Hash> sampleHash() {
+        return Optional.empty();
     }
 
     private int[] getPixels() {
@@ -49,22 +78,6 @@ public interface Image {
         }
     }
 
-    private static MessageDigest getMessageDigest() {
-        try {
-            return MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException cause) {
-            throw new ReadException(cause);
-        }
-    }
-
-    private static StringBuilder toHexadecimal(byte[] hashBytes) {
-        var hex = new StringBuilder();
-        for (byte b : hashBytes) {
-            hex.append(String.format("%02x", b));
-        }
-        return hex;
-    }
-
     record Dimension(int width, int height) {
 
         @Override
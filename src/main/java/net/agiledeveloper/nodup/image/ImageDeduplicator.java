@@ -3,12 +3,22 @@ package net.agiledeveloper.nodup.image;
 import net.agiledeveloper.nodup.App.Action;
 import net.agiledeveloper.nodup.bin.Bin;
 import net.agiledeveloper.nodup.bin.Bin.BinException;
+import net.agiledeveloper.nodup.image.index.ImageIndex;
+import net.agiledeveloper.nodup.image.index.IndexEntry;
 import net.agiledeveloper.nodup.image.processors.ImageProcessor;
+import net.agiledeveloper.nodup.image.watch.DirectoryWatcher;
+import net.agiledeveloper.nodup.image.Image.ReadException;
 import net.agiledeveloper.nodup.image.processors.ImageProcessor.Collision;
 
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static net.agiledeveloper.nodup.App.Action.SCAN;
 import static net.agiledeveloper.nodup.App.logger;
@@ -18,12 +28,18 @@ public class ImageDeduplicator {
     private final ImageProcessor imageProcessor;
     private final ImageProvider imageProvider;
     private final Bin bin;
+    private final HashEngine hashEngine;
 
 
     public ImageDeduplicator(ImageProcessor imageProcessor, ImageProvider imageProvider, Bin bin) {
+        this(imageProcessor, imageProvider, bin, new HashEngine());
+    }
+
+    public ImageDeduplicator(ImageProcessor imageProcessor, ImageProvider imageProvider, Bin bin, HashEngine hashEngine) {
         this.imageProcessor = imageProcessor;
         this.imageProvider = imageProvider;
         this.bin = bin;
+        this.hashEngine = hashEngine;
     }
 
 
@@ -31,14 +47,16 @@ public class ImageDeduplicator {
         long start = System.nanoTime();
 
         logSeparator();
-        logger.info("Scanning directory...");
-        Image[] images = imageProvider.imagesAt(directory);
-        logImages(directory, images);
-
-        logger.info("Checking for duplicates...");
-        Collection<Collision> collisions = imageProcessor.detectCollisions(images);
+        logger.info("Scanning directory and checking for duplicates...");
+        var imageCount = new AtomicInteger(0);
+        Collection<Collision> collisions;
+        try (Stream<Image> images = imageProvider.stream(directory)) {
+            collisions = imageProcessor.detectCollisions(images.peek(image -> imageCount.incrementAndGet()));
+        }
+        logImages(directory, imageCount.get());
 
         logSeparator();
+        logHashStatistics();
         logCollisions(collisions);
 
         if (action != SCAN) {
@@ -48,6 +66,135 @@ public class ImageDeduplicator {
         logDurationSince(start);
     }
 
+    public void index(Path directory, Path indexFile) {
+        long start = System.nanoTime();
+
+        logSeparator();
+        logger.info("Scanning directory and hashing images...");
+        List<Image> images;
+        try (Stream<Image> stream = imageProvider.stream(directory)) {
+            images = stream.toList();
+        }
+        logImages(directory, images.size());
+        var entries = images.parallelStream()
+                .map(ImageDeduplicator::indexEntryOf)
+                .filter(Objects::nonNull)
+                .toList();
+        ImageIndex.write(indexFile, hashEngine.algorithm(), entries);
+        logger.info(() -> "Indexed %s images out of %s files into %s".formatted(entries.size(), images.size(), indexFile));
+
+        logSeparator();
+        logHashStatistics();
+        logDurationSince(start);
+    }
+
+    // Only the inbox is scanned: its images are looked up in the library index, and hashed only when
+    // the index holds files with the same discriminator. The rest of the inbox is checked against itself.
+    public void ingest(Action action, Path inbox, Path indexFile) {
+        long start = System.nanoTime();
+
+        logSeparator();
+        logger.info("Scanning inbox and checking for images already in the library...");
+        List<Image> images;
+        try (Stream<Image> stream = imageProvider.stream(inbox)) {
+            images = stream.toList();
+        }
+        logImages(inbox, images.size());
+
+        Collection<Collision> collisions;
+        try (var index = ImageIndex.open(indexFile)) {
+            collisions = images.parallelStream()
+                    .map(image -> libraryCollisionOf(index, image))
+                    .filter(Objects::nonNull)
+                    .toList();
+            logger.info(() -> "Found %s images of %s already in %s".formatted(collisions.size(), inbox, index));
+        }
+        var known = collisions.stream()
+                .flatMap(collision -> collision.duplicates().stream())
+                .collect(Collectors.toSet());
+        var newImages = images.stream()
+                .filter(image -> !known.contains(image))
+                .toList();
+        var inboxCollisions = imageProcessor.detectCollisions(newImages);
+
+        logSeparator();
+        logHashStatistics();
+        logCollisions(inboxCollisions);
+        collisions.forEach(collision -> logger.fine(collision.toString()));
+
+        if (action != SCAN) {
+            var all = new ArrayList<>(collisions);
+            all.addAll(inboxCollisions);
+            processDuplicates(action, all);
+        }
+
+        logDurationSince(start);
+    }
+
+    // Runs until the process is stopped. The JVM halts as soon as its shutdown hooks return, so the hook
+    // waits for the watching thread to end, letting the caller release its resources, such as the cache.
+    public void watch(Action action, Collection<Path> roots, Duration debounce) {
+        logSeparator();
+        var watchingThread = Thread.currentThread();
+        try (var watcher = new DirectoryWatcher(imageProvider, bin, action, debounce)) {
+            var hook = new Thread(() -> stop(watcher, watchingThread));
+            Runtime.getRuntime().addShutdownHook(hook);
+            try {
+                watcher.watch(roots);
+            } finally {
+                removeShutdownHook(hook);
+            }
+        }
+    }
+
+    private static void stop(DirectoryWatcher watcher, Thread watchingThread) {
+        watcher.close();
+        try {
+            watchingThread.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Fails while the JVM shuts down, in which case the hook is already waiting for this thread
+    private static void removeShutdownHook(Thread hook) {
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException exception) {
+            logger.fine("Stopped watching on shutdown");
+        }
+    }
+
+    private Collision libraryCollisionOf(ImageIndex index, Image image) {
+        try {
+            Path path = image.path().toAbsolutePath().normalize();
+            var candidates = index.lookup(image.dimension(), image.format(), image.weight()).stream()
+                    .filter(entry -> !entry.path().equals(path))
+                    .toList();
+            if (candidates.isEmpty()) {
+                return null;
+            }
+            var hash = image.hash(index.algorithm());
+            return candidates.stream()
+                    .filter(entry -> entry.hash().equals(hash))
+                    .findFirst()
+                    .map(entry -> new Collision(imageProvider.imageAt(entry.path()), image))
+                    .orElse(null);
+        } catch (ReadException exception) {
+            logger.fine(() -> "Could not check %s: %s".formatted(image.path(), exception.getMessage()));
+            return null;
+        }
+    }
+
+    private static IndexEntry indexEntryOf(Image image) {
+        try {
+            return IndexEntry.of(image);
+        } catch (ReadException exception) {
+            logger.fine(() -> "Not indexing %s: %s".formatted(image.path(), exception.getMessage()));
+            return null;
+        }
+    }
+
     private void processDuplicates(Action action, Collection<Collision> collisions) {
         logSeparator();
         Collection<Path> duplicates = collisions.stream()
@@ -74,8 +221,24 @@ public class ImageDeduplicator {
         logger.info(() -> "#".repeat(80));
     }
 
-    private void logImages(Path directory, Image[] images) {
-        logger.info(() -> "Found %s (potential) images in %s".formatted(images.length, directory));
+    private void logImages(Path directory, int imageCount) {
+        logger.info(() -> "Found %s (potential) images in %s".formatted(imageCount, directory));
+    }
+
+    private void logHashStatistics() {
+        // Files sampled but never read in full were ruled out by their samples
+        var allStatistics = List.of(
+                hashEngine.sampleStatistics(), hashEngine.contentStatistics(), hashEngine.pixelStatistics(), hashEngine.comparisonStatistics()
+        );
+        for (var statistics : allStatistics) {
+            if (statistics.count() > 0) {
+                logger.info(statistics::toString);
+            }
+        }
+        var decodeBudget = hashEngine.decodeBudget();
+        if (decodeBudget.isLimited()) {
+            logger.info(decodeBudget::toString);
+        }
     }
 
     private void logCollisions(Collection<Collision> collisions) {
@@ -1,9 +1,19 @@
 package net.agiledeveloper.nodup.image;
 
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
 
 public interface ImageProvider {
 
     Image[] imagesAt(Path directory);
 
+    default Image imageAt(Path file) {
+        return new IOImage(file);
+    }
+
+    default Stream<Image> stream(Path directory) {
+        return Arrays.stream(imagesAt(directory));
+    }
+
 }
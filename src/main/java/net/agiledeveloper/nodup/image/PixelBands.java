@@ -0,0 +1,70 @@
+package net.agiledeveloper.nodup.image;
+
+import java.io.IOException;
+
+// Reads the pixels of an image as successive bands of rows, top to bottom
+public interface PixelBands extends AutoCloseable {
+
+    // Advances to the next band, returning false once every row was read
+    boolean next() throws IOException;
+
+    // Pixels of the current band, valid from offset() for length() entries
+    int[] pixels();
+
+    int offset();
+
+    int length();
+
+    @Override
+    void close() throws IOException;
+
+
+    static PixelBands of(int[] pixels, int width, int bandHeight) {
+        return new ArrayBands(pixels, width * bandHeight);
+    }
+
+
+    class ArrayBands implements PixelBands {
+
+        private final int[] pixels;
+        private final int bandLength;
+        private int offset;
+        private int length;
+
+
+        private ArrayBands(int[] pixels, int bandLength) {
+            this.pixels = pixels;
+            this.bandLength = Math.max(1, bandLength);
+        }
+
+
+        @Override
+        public boolean next() {
+            offset += length;
+            length = Math.min(bandLength, pixels.length - offset);
+            return length > 0;
+        }
+
+        @Override
+        public int[] pixels() {
+            return pixels;
+        }
+
+        @Override
+        public int offset() {
+            return offset;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+
+    }
+
+}
@@ -0,0 +1,202 @@
+package net.agiledeveloper.nodup.image;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static net.agiledeveloper.nodup.App.logger;
+
+public class RecursiveImageProvider implements ImageProvider {
+
+    public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+
+    private final int maxDepth;
+    private final int parallelism;
+    private final HashEngine hashEngine;
+
+
+    public RecursiveImageProvider(int maxDepth, int parallelism) {
+        this(maxDepth, parallelism, new HashEngine());
+    }
+
+    public RecursiveImageProvider(int maxDepth, int parallelism, HashEngine hashEngine) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1: " + maxDepth);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + parallelism);
+        }
+        this.maxDepth = maxDepth;
+        this.parallelism = parallelism;
+        this.hashEngine = hashEngine;
+    }
+
+
+    @Override
+    public Image[] imagesAt(Path directory) {
+        var files = new ConcurrentLinkedQueue<Path>();
+        walk(directory, files::add);
+        return files.stream()
+                .sorted()
+                .map(this::toImage)
+                .toArray(Image[]::new);
+    }
+
+    @Override
+    public Stream<Image> stream(Path directory) {
+        var paths = new PathQueue();
+        var pool = new ForkJoinPool(parallelism);
+        pool.execute(ForkJoinTask.adapt(() -> {
+            try {
+                new DirectoryWalk(directory, 1, paths::offer).invoke();
+                paths.complete();
+            } catch (RuntimeException failure) {
+                paths.fail(failure);
+            }
+        }));
+        return StreamSupport.stream(paths, false)
+                .map(this::toImage)
+                .onClose(pool::shutdownNow);
+    }
+
+    @Override
+    public Image imageAt(Path file) {
+        return toImage(file);
+    }
+
+    private Image toImage(Path path) {
+        return new IOImage(path, hashEngine);
+    }
+
+    private void walk(Path directory, Consumer<Path> sink) {
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectoryWalk(directory, 1, sink));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    private class DirectoryWalk extends RecursiveAction {
+
+        private final Path directory;
+        private final int depth;
+        private final transient Consumer<Path> sink;
+
+
+        private DirectoryWalk(Path directory, int depth, Consumer<Path> sink) {
+            this.directory = directory;
+            this.depth = depth;
+            this.sink = sink;
+        }
+
+
+        @Override
+        protected void compute() {
+            invokeAll(visit());
+        }
+
+        private Collection<DirectoryWalk> visit() {
+            var subdirectories = new ArrayList<DirectoryWalk>();
+            try (var entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    visit(entry, subdirectories);
+                }
+            } catch (IOException | DirectoryIteratorException cause) {
+                if (depth == 1) {
+                    throw new Image.ReadException(cause);
+                }
+                logger.warning(() -> "Could not list %s: %s".formatted(directory, cause.getMessage()));
+            }
+            return subdirectories;
+        }
+
+        private void visit(Path entry, List<DirectoryWalk> subdirectories) {
+            try {
+                // Symbolic links to directories are not followed so that the walk cannot loop
+                var attributes = Files.readAttributes(entry, BasicFileAttributes.class, NOFOLLOW_LINKS);
+                if (attributes.isDirectory()) {
+                    if (depth < maxDepth) {
+                        subdirectories.add(new DirectoryWalk(entry, depth + 1, sink));
+                    }
+                } else if (attributes.isRegularFile() || Files.isRegularFile(entry)) {
+                    sink.accept(entry);
+                }
+            } catch (IOException cause) {
+                logger.fine(() -> "Ignoring %s: %s".formatted(entry, cause.getMessage()));
+            }
+        }
+
+    }
+
+
+    private static class PathQueue extends AbstractSpliterator<Path> {
+
+        private static final Path END = Path.of("");
+
+        private final BlockingQueue<Path> queue = new LinkedBlockingQueue<>();
+        private volatile RuntimeException failure;
+
+
+        private PathQueue() {
+            super(Long.MAX_VALUE, Spliterator.NONNULL | Spliterator.DISTINCT);
+        }
+
+
+        private void offer(Path path) {
+            queue.add(path);
+        }
+
+        private void complete() {
+            queue.add(END);
+        }
+
+        private void fail(RuntimeException failure) {
+            this.failure = failure;
+            complete();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Path> action) {
+            Path path = take();
+            if (path == END) {
+                queue.add(END);
+                if (failure != null) {
+                    throw failure;
+                }
+                return false;
+            }
+            action.accept(path);
+            return true;
+        }
+
+        private Path take() {
+            try {
+                return queue.take();
+            } catch (InterruptedException cause) {
+                Thread.currentThread().interrupt();
+                throw new Image.ReadException(cause);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+package net.agiledeveloper.nodup.image;
+
+public final class Thumbnails {
+
+    private Thumbnails() { }
+
+
+    // Luminance (0-255) of each cell of a grid laid over the image, averaged over the pixels of the cell
+    public static int[] luminance(int[] argb, int width, int height, int targetWidth, int targetHeight) {
+        if (targetWidth < 1 || targetHeight < 1) {
+            throw new IllegalArgumentException("Thumbnail size must be positive: %sx%s".formatted(targetWidth, targetHeight));
+        }
+        var thumbnail = new int[targetWidth * targetHeight];
+        for (int ty = 0; ty < targetHeight; ty++) {
+            int top = ty * height / targetHeight;
+            int bottom = Math.max(top + 1, (ty + 1) * height / targetHeight);
+            for (int tx = 0; tx < targetWidth; tx++) {
+                int left = tx * width / targetWidth;
+                int right = Math.max(left + 1, (tx + 1) * width / targetWidth);
+                long sum = 0;
+                for (int y = top; y < bottom; y++) {
+                    for (int x = left; x < right; x++) {
+                        sum += luminance(argb[y * width + x]);
+                    }
+                }
+                thumbnail[ty * targetWidth + tx] = (int) (sum / ((long) (bottom - top) * (right - left)));
+            }
+        }
+        return thumbnail;
+    }
+
+    // Pixels at the center of each cell of a grid of about columns x rows cells laid over the image, as
+    // decoded with a source subsampling of step(width, columns) by step(height, rows)
+    public static int[] sample(int[] argb, int width, int height, int columns, int rows) {
+        int xStep = step(width, columns);
+        int yStep = step(height, rows);
+        int sampledWidth = samples(width, xStep);
+        int sampledHeight = samples(height, yStep);
+        var sample = new int[sampledWidth * sampledHeight];
+        for (int sy = 0; sy < sampledHeight; sy++) {
+            int y = yStep / 2 + sy * yStep;
+            for (int sx = 0; sx < sampledWidth; sx++) {
+                sample[sy * sampledWidth + sx] = argb[y * width + xStep / 2 + sx * xStep];
+            }
+        }
+        return sample;
+    }
+
+    public static int step(int size, int cells) {
+        if (cells < 1) {
+            throw new IllegalArgumentException("Sample size must be positive: " + cells);
+        }
+        return Math.max(1, size / cells);
+    }
+
+    private static int samples(int size, int step) {
+        return (size - step / 2 + step - 1) / step;
+    }
+
+    // ITU-R BT.601 weights, in integer arithmetic
+    private static int luminance(int argb) {
+        int red = (argb >> 16) & 0xFF;
+        int green = (argb >> 8) & 0xFF;
+        int blue = argb & 0xFF;
+        return (red * 299 + green * 587 + blue * 114) / 1000;
+    }
+
+}
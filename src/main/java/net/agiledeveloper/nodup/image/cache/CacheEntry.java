@@ -0,0 +1,24 @@
+package net.agiledeveloper.nodup.image.cache;
+
+import net.agiledeveloper.nodup.image.Image.Dimension;
+import net.agiledeveloper.nodup.image.hash.Hash;
+
+// Values are filled in as they get computed, from any thread: a lost update only costs a recomputation
+class CacheEntry {
+
+    final FileStamp stamp;
+    volatile long lastSeen;
+    volatile boolean notAnImage;
+    volatile String format;
+    volatile Dimension dimension;
+    volatile Hash pixelHash;
+    volatile Hash contentHash;
+    volatile Hash sampleHash;
+
+
+    CacheEntry(FileStamp stamp, long lastSeen) {
+        this.stamp = stamp;
+        this.lastSeen = lastSeen;
+    }
+
+}
@@ -0,0 +1,181 @@
+package net.agiledeveloper.nodup.image.cache;
+
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.PixelBands;
+import net.agiledeveloper.nodup.image.hash.Hash;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+// Serves metadata and hashes from the cache while the file is unchanged, and records whatever gets computed otherwise
+class CachedImage implements Image {
+
+    private final Image image;
+    private final ImageCache cache;
+    private volatile CacheEntry entry;
+    private volatile boolean uncached;
+
+
+    CachedImage(Image image, ImageCache cache) {
+        this.image = image;
+        this.cache = cache;
+    }
+
+
+    @Override
+    public Path path() {
+        return image.path();
+    }
+
+    @Override
+    public String format() {
+        var cached = entry();
+        if (cached == null) {
+            return image.format();
+        }
+        loadMetadata(cached);
+        return cached.format;
+    }
+
+    @Override
+    public long weight() {
+        var cached = entry();
+        return cached == null ? image.weight() : cached.stamp.size();
+    }
+
+    @Override
+    public int width() {
+        return dimension().width();
+    }
+
+    @Override
+    public int height() {
+        return dimension().height();
+    }
+
+    @Override
+    public Dimension dimension() {
+        var cached = entry();
+        if (cached == null) {
+            return image.dimension();
+        }
+        loadMetadata(cached);
+        return cached.dimension;
+    }
+
+    private void loadMetadata(CacheEntry cached) {
+        if (cached.notAnImage) {
+            throw new Image.ReadException("Not an image: " + path());
+        }
+        if (cached.dimension == null) {
+            try {
+                var dimension = image.dimension();
+                cached.format = image.format();
+                cached.dimension = dimension;
+            } catch (Image.ReadException exception) {
+                // I/O failures, such as locked or unreadable files, may not happen again on the next run
+                if (!(exception.getCause() instanceof IOException)) {
+                    cached.notAnImage = true;
+                }
+                throw exception;
+            }
+        }
+    }
+
+    @Override
+    public int[] pixels() throws IOException {
+        return image.pixels();
+    }
+
+    @Override
+    public int[] thumbnail(int width, int height) throws IOException {
+        return image.thumbnail(width, height);
+    }
+
+    @Override
+    public int[] pixelSample(int columns, int rows) throws IOException {
+        return image.pixelSample(columns, rows);
+    }
+
+    @Override
+    public PixelBands bands(int bandHeight) throws IOException {
+        return image.bands(bandHeight);
+    }
+
+    // Cached images are compared through their pixel hashes, so that once recorded neither image is decoded again
+    @Override
+    public boolean hasSamePixels(Image other) {
+        if (other instanceof CachedImage cachedOther && entry() != null && cachedOther.entry() != null) {
+            return hasSize(other) && hash().equals(cachedOther.hash());
+        }
+        return image.hasSamePixels(other);
+    }
+
+    @Override
+    public Hash hash() {
+        var cached = entry();
+        if (cached == null) {
+            return image.hash();
+        }
+        if (cached.pixelHash == null) {
+            cached.pixelHash = image.hash();
+        }
+        return cached.pixelHash;
+    }
+
+    @Override
+    public Hash hash(HashAlgorithm algorithm) {
+        return algorithm == cache.algorithm() ? hash() : image.hash(algorithm);
+    }
+
+    @Override
+    public Optional<Hash> contentHash() {
+        var cached = entry();
+        if (cached == null) {
+            return image.contentHash();
+        }
+        if (cached.contentHash == null) {
+            cached.contentHash = image.contentHash().orElse(null);
+        }
+        return Optional.ofNullable(cached.contentHash);
+    }
+
+    @Override
+    public Optional<Hash> contentHash(HashAlgorithm algorithm) {
+        return algorithm == cache.algorithm() ? contentHash() : image.contentHash(algorithm);
+    }
+
+    @Override
+    public Optional<Hash> sampleHash() {
+        var cached = entry();
+        if (cached == null) {
+            return image.sampleHash();
+        }
+        if (cached.sampleHash == null) {
+            cached.sampleHash = image.sampleHash().orElse(null);
+        }
+        return Optional.ofNullable(cached.sampleHash);
+    }
+
+    // Files that cannot be stamped are not cached at all
+    private CacheEntry entry() {
+        var cached = entry;
+        if (cached == null && !uncached) {
+            try {
+                cached = cache.entryFor(path(), FileStamp.of(path()));
+                entry = cached;
+            } catch (IOException exception) {
+                uncached = true;
+            }
+        }
+        return cached;
+    }
+
+    @Override
+    public String toString() {
+        return image.toString();
+    }
+
+}
@@ -0,0 +1,39 @@
+package net.agiledeveloper.nodup.image.cache;
+
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.ImageProvider;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+public class CachingImageProvider implements ImageProvider {
+
+    private final ImageProvider imageProvider;
+    private final ImageCache cache;
+
+
+    public CachingImageProvider(ImageProvider imageProvider, ImageCache cache) {
+        this.imageProvider = imageProvider;
+        this.cache = cache;
+    }
+
+
+    @Override
+    public Image[] imagesAt(Path directory) {
+        return Arrays.stream(imageProvider.imagesAt(directory))
+                .map(cache::wrap)
+                .toArray(Image[]::new);
+    }
+
+    @Override
+    public Image imageAt(Path file) {
+        return cache.wrap(imageProvider.imageAt(file));
+    }
+
+    @Override
+    public Stream<Image> stream(Path directory) {
+        return imageProvider.stream(directory).map(cache::wrap);
+    }
+
+}
@@ -0,0 +1,22 @@
+package net.agiledeveloper.nodup.image.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+// Identifies a version of a file: a cache entry is valid as long as its file keeps the same stamp
+record FileStamp(long size, long modified, String fileKey) {
+
+    static FileStamp of(Path path) throws IOException {
+        var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        var fileKey = attributes.fileKey();
+        return new FileStamp(
+                attributes.size(),
+                attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                fileKey == null ? "" : fileKey.toString()
+        );
+    }
+
+}
@@ -0,0 +1,235 @@
+package net.agiledeveloper.nodup.image.cache;
+
+import net.agiledeveloper.nodup.App;
+import net.agiledeveloper.nodup.image.HashEngine;
+import net.agiledeveloper.nodup.image.HashEngine.Sampling;
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.Image.Dimension;
+import net.agiledeveloper.nodup.image.hash.Hash;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static net.agiledeveloper.nodup.App.logger;
+
+// Metadata and hashes of previously scanned files, keyed by absolute path and valid while size, mtime and inode match
+public class ImageCache implements AutoCloseable {
+
+    public static final Path CACHE_ROOT = Paths.get(System.getProperty("user.home"), App.ROOT_DIR, "cache");
+
+    private static final int MAGIC = 0x4E444331;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final Duration RETENTION = Duration.ofDays(90);
+
+    private static final int NOT_AN_IMAGE = 1;
+    private static final int METADATA = 1 << 1;
+    private static final int PIXEL_HASH = 1 << 2;
+    private static final int CONTENT_HASH = 1 << 3;
+    private static final int SAMPLE_HASH = 1 << 4;
+
+    private final Path file;
+    private final HashAlgorithm algorithm;
+    private final Sampling sampling;
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+    private final long now = System.currentTimeMillis();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile boolean loaded;
+
+
+    private ImageCache(Path file, HashEngine hashEngine) {
+        this.file = file;
+        this.algorithm = hashEngine.algorithm();
+        this.sampling = hashEngine.sampling();
+    }
+
+
+    // Hashes depend on the algorithm, so that each algorithm has its own cache file.
+    // The file is only read once an image is looked up, and only written back if it was read.
+    public static ImageCache open(Path directory, HashEngine hashEngine) {
+        return new ImageCache(directory.resolve("images-" + hashEngine.algorithm().displayName() + ".cache"), hashEngine);
+    }
+
+    public Image wrap(Image image) {
+        return new CachedImage(image, this);
+    }
+
+    HashAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    CacheEntry entryFor(Path path, FileStamp stamp) {
+        loadIfNecessary();
+        var entry = entries.compute(keyOf(path), (key, cached) -> {
+            if (cached != null && cached.stamp.equals(stamp)) {
+                hits.increment();
+                return cached;
+            }
+            misses.increment();
+            return new CacheEntry(stamp, now);
+        });
+        entry.lastSeen = now;
+        return entry;
+    }
+
+    public int size() {
+        loadIfNecessary();
+        return entries.size();
+    }
+
+    @Override
+    public void close() {
+        save();
+    }
+
+    public void save() {
+        if (!loaded) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(file.getParent());
+            var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            int written = write(temporary);
+            Files.move(temporary, file, REPLACE_EXISTING, ATOMIC_MOVE);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            logger.info(() -> "Saved %s cache entries to %s in %s ms (%s hits, %s misses)".formatted(
+                    written, file, elapsed, hits.sum(), misses.sum()
+            ));
+        } catch (IOException exception) {
+            logger.warning(() -> "Could not save cache to %s: %s".formatted(file, exception.getMessage()));
+        }
+    }
+
+    private void loadIfNecessary() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    load();
+                    loaded = true;
+                }
+            }
+        }
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            read(in);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            logger.info(() -> "Loaded %s cache entries from %s in %s ms".formatted(entries.size(), file, elapsed));
+        } catch (NoSuchFileException exception) {
+            logger.fine(() -> "No cache found at " + file);
+        } catch (IOException | RuntimeException exception) {
+            entries.clear();
+            logger.warning(() -> "Ignoring unreadable cache %s: %s".formatted(file, exception.getMessage()));
+        }
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unsupported cache format");
+        }
+        if (!algorithm.displayName().equals(in.readUTF())) {
+            throw new IOException("Cache built with another hash algorithm");
+        }
+        // Sample hashes computed with other sampling settings are not comparable
+        boolean sameSampling = sampling.equals(new Sampling(in.readInt(), in.readInt()));
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String path = in.readUTF();
+            var entry = new CacheEntry(new FileStamp(in.readLong(), in.readLong(), in.readUTF()), in.readLong());
+            int flags = in.readUnsignedByte();
+            entry.notAnImage = (flags & NOT_AN_IMAGE) != 0;
+            if ((flags & METADATA) != 0) {
+                entry.format = in.readUTF().intern();
+                entry.dimension = new Dimension(in.readInt(), in.readInt());
+            }
+            entry.pixelHash = (flags & PIXEL_HASH) != 0 ? readHash(in) : null;
+            entry.contentHash = (flags & CONTENT_HASH) != 0 ? readHash(in) : null;
+            Hash sampleHash = (flags & SAMPLE_HASH) != 0 ? readHash(in) : null;
+            entry.sampleHash = sameSampling ? sampleHash : null;
+            entries.put(path, entry);
+        }
+    }
+
+    // Entries of files that have not been seen for a while are dropped, so that deleted files do not pile up
+    private int write(Path target) throws IOException {
+        long oldest = now - RETENTION.toMillis();
+        int written = 0;
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(algorithm.displayName());
+            out.writeInt(sampling.blockSize());
+            out.writeInt(sampling.blockCount());
+            var retained = entries.entrySet().stream()
+                    .filter(entry -> entry.getValue().lastSeen >= oldest)
+                    .toList();
+            out.writeInt(retained.size());
+            for (var entry : retained) {
+                out.writeUTF(entry.getKey());
+                write(out, entry.getValue());
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static void write(DataOutputStream out, CacheEntry entry) throws IOException {
+        out.writeLong(entry.stamp.size());
+        out.writeLong(entry.stamp.modified());
+        out.writeUTF(entry.stamp.fileKey());
+        out.writeLong(entry.lastSeen);
+
+        var dimension = entry.dimension;
+        var format = entry.format;
+        var pixelHash = entry.pixelHash;
+        var contentHash = entry.contentHash;
+        var sampleHash = entry.sampleHash;
+        boolean hasMetadata = dimension != null && format != null;
+        out.writeByte((entry.notAnImage ? NOT_AN_IMAGE : 0)
+                | (hasMetadata ? METADATA : 0)
+                | (pixelHash != null ? PIXEL_HASH : 0)
+                | (contentHash != null ? CONTENT_HASH : 0)
+                | (sampleHash != null ? SAMPLE_HASH : 0));
+        if (hasMetadata) {
+            out.writeUTF(format);
+            out.writeInt(dimension.width());
+            out.writeInt(dimension.height());
+        }
+        for (var hash : new Hash[]{pixelHash, contentHash, sampleHash}) {
+            if (hash != null) {
+                var bytes = hash.bytes();
+                out.writeByte(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static Hash readHash(DataInputStream in) throws IOException {
+        var bytes = new byte[in.readUnsignedByte()];
+        in.readFully(bytes);
+        return Hash.of(bytes);
+    }
+
+    private static String keyOf(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+}
@@ -0,0 +1,72 @@
+package net.agiledeveloper.nodup.image.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+abstract class BlockHasher implements Hasher {
+
+    private static final VarHandle LITTLE_ENDIAN_LONG =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LITTLE_ENDIAN_INT =
+            MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final int blockSize;
+    private final byte[] buffer;
+    private int buffered;
+    private long totalLength;
+
+
+    protected BlockHasher(int blockSize) {
+        this.blockSize = blockSize;
+        this.buffer = new byte[blockSize];
+        reset();
+    }
+
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) {
+        totalLength += length;
+        int end = offset + length;
+        if (buffered > 0) {
+            int copied = Math.min(blockSize - buffered, length);
+            System.arraycopy(bytes, offset, buffer, buffered, copied);
+            buffered += copied;
+            offset += copied;
+            if (buffered < blockSize) {
+                return;
+            }
+            processBlock(buffer, 0);
+            buffered = 0;
+        }
+        for (; offset <= end - blockSize; offset += blockSize) {
+            processBlock(bytes, offset);
+        }
+        buffered = end - offset;
+        System.arraycopy(bytes, offset, buffer, 0, buffered);
+    }
+
+    @Override
+    public byte[] digest() {
+        byte[] digest = finish(buffer, buffered, totalLength);
+        buffered = 0;
+        totalLength = 0;
+        reset();
+        return digest;
+    }
+
+    protected abstract void reset();
+
+    protected abstract void processBlock(byte[] bytes, int offset);
+
+    protected abstract byte[] finish(byte[] tail, int tailLength, long totalLength);
+
+    protected static long readLong(byte[] bytes, int offset) {
+        return (long) LITTLE_ENDIAN_LONG.get(bytes, offset);
+    }
+
+    protected static long readUnsignedInt(byte[] bytes, int offset) {
+        return Integer.toUnsignedLong((int) LITTLE_ENDIAN_INT.get(bytes, offset));
+    }
+
+}
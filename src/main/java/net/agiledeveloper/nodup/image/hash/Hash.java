@@ -0,0 +1,101 @@
+package net.agiledeveloper.nodup.image.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+// Digest of up to 256 bits held in four longs, so that a hash costs one small object instead of a hex string
+public final class Hash {
+
+    public static final int MAX_BYTES = 4 * Long.BYTES;
+
+    private static final VarHandle BIG_ENDIAN_LONG =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final char[] HEXADECIMAL_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final long word0;
+    private final long word1;
+    private final long word2;
+    private final long word3;
+    private final int length;
+    private final int hashCode;
+
+
+    private Hash(long word0, long word1, long word2, long word3, int length) {
+        this.word0 = word0;
+        this.word1 = word1;
+        this.word2 = word2;
+        this.word3 = word3;
+        this.length = length;
+        // Digest bits are already uniformly distributed
+        this.hashCode = (int) (word0 ^ word0 >>> 32);
+    }
+
+
+    public static Hash of(byte[] digest) {
+        if (digest.length == 0 || digest.length > MAX_BYTES || digest.length % Long.BYTES != 0) {
+            throw new IllegalArgumentException("Unsupported digest length: " + digest.length);
+        }
+        return new Hash(word(digest, 0), word(digest, 1), word(digest, 2), word(digest, 3), digest.length);
+    }
+
+    public static Hash ofHexadecimal(String hexadecimal) {
+        var digest = new byte[hexadecimal.length() / 2];
+        for (int i = 0; i < digest.length; i++) {
+            digest[i] = (byte) Integer.parseInt(hexadecimal, 2 * i, 2 * i + 2, 16);
+        }
+        return of(digest);
+    }
+
+    private static long word(byte[] digest, int index) {
+        int offset = index * Long.BYTES;
+        return offset < digest.length ? (long) BIG_ENDIAN_LONG.get(digest, offset) : 0;
+    }
+
+    public byte[] bytes() {
+        var digest = new byte[length];
+        for (int offset = 0; offset < length; offset += Long.BYTES) {
+            BIG_ENDIAN_LONG.set(digest, offset, word(offset / Long.BYTES));
+        }
+        return digest;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    private long word(int index) {
+        return switch (index) {
+            case 0 -> word0;
+            case 1 -> word1;
+            case 2 -> word2;
+            default -> word3;
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Hash other)) return false;
+        return hashCode == other.hashCode
+                && word0 == other.word0 && word1 == other.word1 && word2 == other.word2 && word3 == other.word3
+                && length == other.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        var hex = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            int value = (int) (word(i / Long.BYTES) >>> (56 - 8 * (i % Long.BYTES)));
+            hex[2 * i] = HEXADECIMAL_DIGITS[(value >>> 4) & 0x0F];
+            hex[2 * i + 1] = HEXADECIMAL_DIGITS[value & 0x0F];
+        }
+        return new String(hex);
+    }
+
+}
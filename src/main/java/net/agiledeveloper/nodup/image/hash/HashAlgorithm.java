@@ -0,0 +1,43 @@
+package net.agiledeveloper.nodup.image.hash;
+
+import java.util.function.Supplier;
+
+import static java.util.Arrays.stream;
+
+public enum HashAlgorithm {
+
+    SHA256("sha256", Sha256Hasher::new),
+    XXH64("xxh64", Xxh64Hasher::new),
+    MURMUR3_128("murmur3_128", Murmur3Hasher::new);
+
+    private final String displayName;
+    private final Supplier<Hasher> hasherFactory;
+
+
+    HashAlgorithm(String displayName, Supplier<Hasher> hasherFactory) {
+        this.displayName = displayName;
+        this.hasherFactory = hasherFactory;
+    }
+
+
+    public Hasher newHasher() {
+        return hasherFactory.get();
+    }
+
+    public String displayName() {
+        return displayName;
+    }
+
+    public static HashAlgorithm named(String name) {
+        return stream(values())
+                .filter(algorithm -> algorithm.displayName.equalsIgnoreCase(name.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown hash algorithm: " + name));
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+}
@@ -0,0 +1,33 @@
+package net.agiledeveloper.nodup.image.hash;
+
+import java.nio.ByteBuffer;
+
+public interface Hasher {
+
+    int CHUNK_SIZE = 8 * 1024;
+
+    void update(byte[] bytes, int offset, int length);
+
+    default void update(ByteBuffer bytes) {
+        if (bytes.hasArray()) {
+            update(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+            bytes.position(bytes.limit());
+            return;
+        }
+        var chunk = new byte[Math.min(CHUNK_SIZE, bytes.remaining())];
+        while (bytes.hasRemaining()) {
+            int length = Math.min(chunk.length, bytes.remaining());
+            bytes.get(chunk, 0, length);
+            update(chunk, 0, length);
+        }
+    }
+
+    // Completes the hash computation and resets this hasher for reuse
+    byte[] digest();
+
+    default byte[] digest(byte[] bytes) {
+        update(bytes, 0, bytes.length);
+        return digest();
+    }
+
+}
@@ -0,0 +1,94 @@
+package net.agiledeveloper.nodup.image.hash;
+
+import java.nio.ByteBuffer;
+
+import static java.lang.Long.rotateLeft;
+
+class Xxh64Hasher extends BlockHasher {
+
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+    private static final long SEED = 0;
+
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+
+    Xxh64Hasher() {
+        super(32);
+    }
+
+
+    @Override
+    protected void reset() {
+        v1 = SEED + PRIME_1 + PRIME_2;
+        v2 = SEED + PRIME_2;
+        v3 = SEED;
+        v4 = SEED - PRIME_1;
+    }
+
+    @Override
+    protected void processBlock(byte[] bytes, int offset) {
+        v1 = round(v1, readLong(bytes, offset));
+        v2 = round(v2, readLong(bytes, offset + 8));
+        v3 = round(v3, readLong(bytes, offset + 16));
+        v4 = round(v4, readLong(bytes, offset + 24));
+    }
+
+    @Override
+    protected byte[] finish(byte[] tail, int tailLength, long totalLength) {
+        long hash;
+        if (totalLength >= 32) {
+            hash = rotateLeft(v1, 1) + rotateLeft(v2, 7) + rotateLeft(v3, 12) + rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = SEED + PRIME_5;
+        }
+        hash += totalLength;
+
+        int offset = 0;
+        for (; offset + 8 <= tailLength; offset += 8) {
+            hash ^= round(0, readLong(tail, offset));
+            hash = rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+        }
+        if (offset + 4 <= tailLength) {
+            hash ^= readUnsignedInt(tail, offset) * PRIME_1;
+            hash = rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+            offset += 4;
+        }
+        for (; offset < tailLength; offset++) {
+            hash ^= (tail[offset] & 0xFFL) * PRIME_5;
+            hash = rotateLeft(hash, 11) * PRIME_1;
+        }
+
+        return ByteBuffer.allocate(Long.BYTES).putLong(avalanche(hash)).array();
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME_2;
+        accumulator = rotateLeft(accumulator, 31);
+        return accumulator * PRIME_1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        accumulator ^= round(0, value);
+        return accumulator * PRIME_1 + PRIME_4;
+    }
+
+    private static long avalanche(long hash) {
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        return hash ^ (hash >>> 32);
+    }
+
+}
@@ -0,0 +1,25 @@
+package net.agiledeveloper.nodup.image.header;
+
+import java.io.IOException;
+
+class BmpParser implements HeaderParser {
+
+    private static final int CORE_HEADER_SIZE = 12;
+
+
+    @Override
+    public boolean accepts(HeaderReader reader) throws IOException {
+        return reader.matches(0, "BM");
+    }
+
+    // Bottom-up and top-down bitmaps only differ by the sign of their height
+    @Override
+    public ImageHeader parse(HeaderReader reader) throws IOException {
+        int headerSize = reader.s32LittleEndian(14);
+        if (headerSize == CORE_HEADER_SIZE) {
+            return new ImageHeader("bmp", reader.u16LittleEndian(18), reader.u16LittleEndian(20));
+        }
+        return new ImageHeader("bmp", reader.s32LittleEndian(18), Math.abs(reader.s32LittleEndian(22)));
+    }
+
+}
@@ -0,0 +1,47 @@
+package net.agiledeveloper.nodup.image.header;
+
+import java.io.IOException;
+
+class GifParser implements HeaderParser {
+
+    private static final int IMAGE_SEPARATOR = 0x2C;
+    private static final int EXTENSION_INTRODUCER = 0x21;
+    private static final int MAX_BLOCKS = 1024;
+
+
+    @Override
+    public boolean accepts(HeaderReader reader) throws IOException {
+        return reader.matches(0, "GIF87a") || reader.matches(0, "GIF89a");
+    }
+
+    // Reports the first frame's size, as ImageIO does, rather than the logical screen size
+    @Override
+    public ImageHeader parse(HeaderReader reader) throws IOException {
+        long position = 13 + colorTableSize(reader.u8(10));
+        for (int block = 0; block < MAX_BLOCKS; block++) {
+            int introducer = reader.u8(position);
+            if (introducer == IMAGE_SEPARATOR) {
+                return new ImageHeader("gif", reader.u16LittleEndian(position + 5), reader.u16LittleEndian(position + 7));
+            }
+            if (introducer != EXTENSION_INTRODUCER) {
+                break;
+            }
+            position = skipSubBlocks(reader, position + 2);
+        }
+        throw new HeaderException("No GIF image descriptor found");
+    }
+
+    private static long skipSubBlocks(HeaderReader reader, long position) throws IOException {
+        int length;
+        while ((length = reader.u8(position)) != 0) {
+            position += 1 + length;
+        }
+        return position + 1;
+    }
+
+    private static int colorTableSize(int flags) {
+        boolean hasColorTable = (flags & 0x80) != 0;
+        return hasColorTable ? 3 * (1 << ((flags & 0x07) + 1)) : 0;
+    }
+
+}
@@ -0,0 +1,9 @@
+package net.agiledeveloper.nodup.image.header;
+
+public class HeaderException extends RuntimeException {
+
+    public HeaderException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,11 @@
+package net.agiledeveloper.nodup.image.header;
+
+import java.io.IOException;
+
+interface HeaderParser {
+
+    boolean accepts(HeaderReader reader) throws IOException;
+
+    ImageHeader parse(HeaderReader reader) throws IOException;
+
+}
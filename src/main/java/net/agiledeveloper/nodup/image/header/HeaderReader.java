@@ -0,0 +1,86 @@
+package net.agiledeveloper.nodup.image.header;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Positional reads over a file, buffered through a small window
+class HeaderReader {
+
+    private static final int WINDOW_SIZE = 4 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+    private long windowStart = -1;
+    private int windowLength;
+
+
+    HeaderReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+
+    int u8(long position) throws IOException {
+        ensureAvailable(position, 1);
+        return window.get((int) (position - windowStart)) & 0xFF;
+    }
+
+    int u16BigEndian(long position) throws IOException {
+        return u8(position) << 8 | u8(position + 1);
+    }
+
+    int u16LittleEndian(long position) throws IOException {
+        return u8(position) | u8(position + 1) << 8;
+    }
+
+    int u24LittleEndian(long position) throws IOException {
+        return u16LittleEndian(position) | u8(position + 2) << 16;
+    }
+
+    int s32BigEndian(long position) throws IOException {
+        return u16BigEndian(position) << 16 | u16BigEndian(position + 2);
+    }
+
+    int s32LittleEndian(long position) throws IOException {
+        return u16LittleEndian(position) | u16LittleEndian(position + 2) << 16;
+    }
+
+    boolean matches(long position, byte... expected) throws IOException {
+        for (int i = 0; i < expected.length; i++) {
+            if (u8(position + i) != (expected[i] & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean matches(long position, String ascii) throws IOException {
+        for (int i = 0; i < ascii.length(); i++) {
+            if (u8(position + i) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureAvailable(long position, int length) throws IOException {
+        if (windowStart >= 0 && position >= windowStart && position + length <= windowStart + windowLength) {
+            return;
+        }
+        window.clear();
+        int read = 0;
+        while (window.hasRemaining()) {
+            int count = channel.read(window, position + read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        windowStart = position;
+        windowLength = read;
+        if (read < length) {
+            throw new HeaderException("Unexpected end of file at offset " + position);
+        }
+    }
+
+}
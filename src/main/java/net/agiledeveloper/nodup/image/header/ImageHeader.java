@@ -0,0 +1,11 @@
+package net.agiledeveloper.nodup.image.header;
+
+public record ImageHeader(String format, int width, int height) {
+
+    public ImageHeader {
+        if (width <= 0 || height <= 0) {
+            throw new HeaderException("Invalid %s dimension: %sx%s".formatted(format, width, height));
+        }
+    }
+
+}
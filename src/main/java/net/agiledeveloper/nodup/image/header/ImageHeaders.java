@@ -0,0 +1,40 @@
+package net.agiledeveloper.nodup.image.header;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+// Reads the format and dimension of common image formats from their first bytes only
+public class ImageHeaders {
+
+    private static final List<HeaderParser> PARSERS = List.of(
+            new JpegParser(),
+            new PngParser(),
+            new GifParser(),
+            new BmpParser(),
+            new WebpParser()
+    );
+
+    private ImageHeaders() { }
+
+
+    // Empty when the format is not supported natively, so that callers can fall back to ImageIO
+    public static Optional<ImageHeader> read(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, READ)) {
+            var reader = new HeaderReader(channel);
+            for (var parser : PARSERS) {
+                if (parser.accepts(reader)) {
+                    return Optional.of(parser.parse(reader));
+                }
+            }
+            return Optional.empty();
+        } catch (HeaderException exception) {
+            return Optional.empty();
+        }
+    }
+
+}
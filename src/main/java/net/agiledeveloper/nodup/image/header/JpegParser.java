@@ -0,0 +1,47 @@
+package net.agiledeveloper.nodup.image.header;
+
+import java.io.IOException;
+
+class JpegParser implements HeaderParser {
+
+    private static final int MAX_SEGMENTS = 1024;
+
+
+    @Override
+    public boolean accepts(HeaderReader reader) throws IOException {
+        return reader.u8(0) == 0xFF && reader.u8(1) == 0xD8 && reader.u8(2) == 0xFF;
+    }
+
+    // Skips from segment to segment until the start of frame, without reading the segment contents
+    @Override
+    public ImageHeader parse(HeaderReader reader) throws IOException {
+        long position = 2;
+        for (int segment = 0; segment < MAX_SEGMENTS; segment++) {
+            if (reader.u8(position) != 0xFF) {
+                throw new HeaderException("Invalid JPEG marker at offset " + position);
+            }
+            int marker = reader.u8(position + 1);
+            if (marker == 0xFF) {
+                position++;
+            } else if (isStartOfFrame(marker)) {
+                return new ImageHeader("JPEG", reader.u16BigEndian(position + 7), reader.u16BigEndian(position + 5));
+            } else if (isStandalone(marker)) {
+                position += 2;
+            } else if (marker == 0xDA || marker == 0xD9) {
+                break;
+            } else {
+                position += 2 + reader.u16BigEndian(position + 2);
+            }
+        }
+        throw new HeaderException("No JPEG start of frame found");
+    }
+
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static boolean isStandalone(int marker) {
+        return marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8);
+    }
+
+}
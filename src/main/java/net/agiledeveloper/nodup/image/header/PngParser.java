@@ -0,0 +1,23 @@
+package net.agiledeveloper.nodup.image.header;
+
+import java.io.IOException;
+
+class PngParser implements HeaderParser {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+
+    @Override
+    public boolean accepts(HeaderReader reader) throws IOException {
+        return reader.matches(0, SIGNATURE);
+    }
+
+    @Override
+    public ImageHeader parse(HeaderReader reader) throws IOException {
+        if (!reader.matches(12, "IHDR")) {
+            throw new HeaderException("Missing IHDR chunk");
+        }
+        return new ImageHeader("png", reader.s32BigEndian(16), reader.s32BigEndian(20));
+    }
+
+}
@@ -0,0 +1,41 @@
+package net.agiledeveloper.nodup.image.header;
+
+import java.io.IOException;
+
+class WebpParser implements HeaderParser {
+
+    @Override
+    public boolean accepts(HeaderReader reader) throws IOException {
+        return reader.matches(0, "RIFF") && reader.matches(8, "WEBP");
+    }
+
+    @Override
+    public ImageHeader parse(HeaderReader reader) throws IOException {
+        if (reader.matches(12, "VP8 ")) {
+            return parseLossy(reader);
+        }
+        if (reader.matches(12, "VP8L")) {
+            return parseLossless(reader);
+        }
+        if (reader.matches(12, "VP8X")) {
+            return new ImageHeader("webp", 1 + reader.u24LittleEndian(24), 1 + reader.u24LittleEndian(27));
+        }
+        throw new HeaderException("Unknown WebP chunk");
+    }
+
+    private static ImageHeader parseLossy(HeaderReader reader) throws IOException {
+        if (!reader.matches(23, (byte) 0x9D, (byte) 0x01, (byte) 0x2A)) {
+            throw new HeaderException("Missing VP8 start code");
+        }
+        return new ImageHeader("webp", reader.u16LittleEndian(26) & 0x3FFF, reader.u16LittleEndian(28) & 0x3FFF);
+    }
+
+    private static ImageHeader parseLossless(HeaderReader reader) throws IOException {
+        if (reader.u8(20) != 0x2F) {
+            throw new HeaderException("Missing VP8L signature");
+        }
+        int bits = reader.s32LittleEndian(21);
+        return new ImageHeader("webp", 1 + (bits & 0x3FFF), 1 + ((bits >>> 14) & 0x3FFF));
+    }
+
+}
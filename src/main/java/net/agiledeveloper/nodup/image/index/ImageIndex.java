@@ -0,0 +1,296 @@
+package net.agiledeveloper.nodup.image.index;
+
+import net.agiledeveloper.nodup.App;
+import net.agiledeveloper.nodup.image.Image.Dimension;
+import net.agiledeveloper.nodup.image.hash.Hash;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static net.agiledeveloper.nodup.image.index.IndexFormat.*;
+
+// Read-only view of an index file. Records stay in the mapped file and are only decoded when they match a lookup.
+public class ImageIndex implements AutoCloseable {
+
+    public static final Path DEFAULT_INDEX = Paths.get(System.getProperty("user.home"), App.ROOT_DIR, "index", "library.index");
+
+    // Sections are mapped in chunks, since a single mapping cannot exceed 2 GB
+    private static final int CHUNK_SIZE = 1 << 30;
+    // Record chunks hold a whole number of records, so that no record spans two mappings
+    private static final int RECORD_CHUNK_SIZE = CHUNK_SIZE / RECORD_SIZE * RECORD_SIZE;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final HashAlgorithm algorithm;
+    private final int hashLength;
+    private final int size;
+    private final List<String> formats;
+    private final MappedByteBuffer[] paths;
+    private final MappedByteBuffer[] records;
+    private final MappedByteBuffer hashes;
+
+
+    private ImageIndex(Path file, FileChannel channel) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IndexException("Not an index file: " + file);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IndexException("Unsupported index version %s: %s".formatted(header.getInt(4), file));
+        }
+        if (header.getLong(END_OFFSET) != channel.size()) {
+            throw new IndexException("Corrupted index file: " + file);
+        }
+        long entryCount = header.getLong(ENTRY_COUNT_OFFSET);
+        if (entryCount > Integer.MAX_VALUE) {
+            throw new IndexException("Too many entries in index file: " + file);
+        }
+        this.size = (int) entryCount;
+        this.hashLength = header.getInt(HASH_LENGTH_OFFSET);
+        this.algorithm = HashAlgorithm.named(algorithmName(header));
+        this.formats = readFormats(header.getLong(FORMATS_OFFSET), header.getInt(FORMAT_COUNT_OFFSET));
+        long pathsOffset = header.getLong(PATHS_OFFSET);
+        long recordsOffset = header.getLong(RECORDS_OFFSET);
+        long hashesOffset = header.getLong(HASHES_OFFSET);
+        this.paths = map(pathsOffset, recordsOffset - pathsOffset, CHUNK_SIZE);
+        this.records = map(recordsOffset, hashesOffset - recordsOffset, RECORD_CHUNK_SIZE);
+        this.hashes = channel.map(READ_ONLY, hashesOffset, (long) size * Integer.BYTES);
+    }
+
+
+    public static ImageIndex open(Path file) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, READ);
+            return new ImageIndex(file, channel);
+        } catch (IOException | RuntimeException exception) {
+            closeQuietly(channel);
+            if (exception instanceof IndexException indexException) {
+                throw indexException;
+            }
+            throw new IndexException("Could not open index %s: %s".formatted(file, exception.getMessage()), exception);
+        }
+    }
+
+    public static void write(Path file, HashAlgorithm algorithm, List<IndexEntry> entries) {
+        try {
+            ImageIndexWriter.write(file, algorithm, entries);
+        } catch (IOException exception) {
+            throw new IndexException("Could not write index %s: %s".formatted(file, exception.getMessage()), exception);
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public HashAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public IndexEntry get(int record) {
+        var buffer = recordBuffer(record);
+        int offset = recordOffset(record);
+        var dimension = new Dimension(buffer.getInt(offset + WIDTH), buffer.getInt(offset + HEIGHT));
+        var format = formats.get(buffer.getInt(offset + FORMAT));
+        long weight = buffer.getLong(offset + WEIGHT);
+        var path = Path.of(readPath(buffer.getLong(offset + PATH), buffer.getInt(offset + PATH_LENGTH)));
+        var hash = new byte[hashLength];
+        buffer.get(offset + HASH, hash);
+        return new IndexEntry(path, dimension, format, weight, Hash.of(hash));
+    }
+
+    // Entries sharing the discriminator used to group images before hashing them
+    public List<IndexEntry> lookup(Dimension dimension, String format, long weight) {
+        int formatId = formats.indexOf(String.valueOf(format));
+        if (formatId < 0) {
+            return List.of();
+        }
+        long[] key = {dimension.width(), dimension.height(), formatId, weight};
+        int first = lowerBound(key);
+        var matches = new ArrayList<IndexEntry>();
+        for (int record = first; record < size && compareRecord(record, key) == 0; record++) {
+            matches.add(get(record));
+        }
+        return matches;
+    }
+
+    public List<IndexEntry> lookup(Hash hash) {
+        if (hash.length() != hashLength) {
+            return List.of();
+        }
+        var key = new long[HASH_SIZE / Long.BYTES];
+        ByteBuffer.wrap(Arrays.copyOf(hash.bytes(), HASH_SIZE)).asLongBuffer().get(key);
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareHash(hashes.getInt(middle * Integer.BYTES), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        var matches = new ArrayList<IndexEntry>();
+        for (int position = low; position < size; position++) {
+            int record = hashes.getInt(position * Integer.BYTES);
+            if (compareHash(record, key) != 0) {
+                break;
+            }
+            matches.add(get(record));
+        }
+        return matches;
+    }
+
+    public boolean contains(Hash hash) {
+        return !lookup(hash).isEmpty();
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(channel);
+    }
+
+    @Override
+    public String toString() {
+        return "%s (%s entries, %s)".formatted(file, size, algorithm);
+    }
+
+    private int lowerBound(long[] key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareRecord(middle, key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compareRecord(int record, long[] key) {
+        var buffer = recordBuffer(record);
+        int offset = recordOffset(record);
+        int result = Integer.compare(buffer.getInt(offset + WIDTH), (int) key[0]);
+        if (result == 0) {
+            result = Integer.compare(buffer.getInt(offset + HEIGHT), (int) key[1]);
+        }
+        if (result == 0) {
+            result = Integer.compare(buffer.getInt(offset + FORMAT), (int) key[2]);
+        }
+        if (result == 0) {
+            result = Long.compare(buffer.getLong(offset + WEIGHT), key[3]);
+        }
+        return result;
+    }
+
+    private int compareHash(int record, long[] key) {
+        var buffer = recordBuffer(record);
+        int offset = recordOffset(record) + HASH;
+        for (int i = 0; i < key.length; i++) {
+            int result = Long.compareUnsigned(buffer.getLong(offset + i * Long.BYTES), key[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private MappedByteBuffer recordBuffer(int record) {
+        return records[(int) ((long) record * RECORD_SIZE / RECORD_CHUNK_SIZE)];
+    }
+
+    private int recordOffset(int record) {
+        return (int) ((long) record * RECORD_SIZE % RECORD_CHUNK_SIZE);
+    }
+
+    private String readPath(long offset, int length) {
+        var bytes = new byte[length];
+        for (int copied = 0; copied < length; ) {
+            long position = offset + copied;
+            var buffer = paths[(int) (position / CHUNK_SIZE)];
+            int start = (int) (position % CHUNK_SIZE);
+            int count = Math.min(length - copied, buffer.capacity() - start);
+            buffer.get(start, bytes, copied, count);
+            copied += count;
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    private List<String> readFormats(long offset, int count) throws IOException {
+        var formats = new ArrayList<String>(count);
+        var length = ByteBuffer.allocate(Integer.BYTES);
+        for (int i = 0; i < count; i++) {
+            channel.read(length.clear(), offset);
+            var name = ByteBuffer.allocate(length.getInt(0));
+            channel.read(name, offset + Integer.BYTES);
+            formats.add(new String(name.array(), UTF_8));
+            offset += Integer.BYTES + name.capacity();
+        }
+        return List.copyOf(formats);
+    }
+
+    private MappedByteBuffer[] map(long offset, long length, int chunkSize) throws IOException {
+        var buffers = new MappedByteBuffer[(int) ((length + chunkSize - 1) / chunkSize)];
+        for (int i = 0; i < buffers.length; i++) {
+            long start = (long) i * chunkSize;
+            buffers[i] = channel.map(READ_ONLY, offset + start, Math.min(chunkSize, length - start));
+        }
+        return buffers;
+    }
+
+    private static String algorithmName(ByteBuffer header) {
+        var name = new byte[ALGORITHM_LENGTH];
+        header.get(ALGORITHM_OFFSET, name);
+        int length = 0;
+        while (length < name.length && name[length] != 0) {
+            length++;
+        }
+        return new String(name, 0, length, US_ASCII);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+            // Nothing else to release
+        }
+    }
+
+
+    public static class IndexException extends RuntimeException {
+
+        public IndexException(String message) {
+            super(message);
+        }
+
+        public IndexException(String message, Throwable cause) {
+            super(message, cause);
+        }
+
+    }
+
+}
@@ -0,0 +1,178 @@
+package net.agiledeveloper.nodup.image.index;
+
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static net.agiledeveloper.nodup.image.index.IndexFormat.*;
+
+class ImageIndexWriter {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long position = HEADER_SIZE;
+
+
+    private ImageIndexWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+
+    // Written to a temporary file first, so that readers never map a partial index
+    static void write(Path file, HashAlgorithm algorithm, List<IndexEntry> entries) throws IOException {
+        var directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            new ImageIndexWriter(channel).write(algorithm, entries);
+        }
+        Files.move(temporary, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private void write(HashAlgorithm algorithm, List<IndexEntry> unsorted) throws IOException {
+        var formats = new TreeSet<String>();
+        unsorted.forEach(entry -> formats.add(entry.format()));
+        var formatIds = List.copyOf(formats);
+        var idOf = new HashMap<String, Integer>();
+        formatIds.forEach(format -> idOf.put(format, idOf.size()));
+
+        var entries = unsorted.stream()
+                .sorted(Comparator.<IndexEntry>comparingInt(entry -> entry.dimension().width())
+                        .thenComparingInt(entry -> entry.dimension().height())
+                        .thenComparingInt(entry -> idOf.get(entry.format()))
+                        .thenComparingLong(IndexEntry::weight)
+                        .thenComparing(IndexEntry::path))
+                .toList();
+        int[] formatOf = entries.stream()
+                .mapToInt(entry -> idOf.get(entry.format()))
+                .toArray();
+        int hashLength = entries.isEmpty() ? 0 : entries.get(0).hash().length();
+        if (entries.stream().anyMatch(entry -> entry.hash().length() != hashLength)) {
+            throw new IllegalArgumentException("All hashes of an index must have the same length");
+        }
+
+        long formatsOffset = position;
+        for (String format : formatIds) {
+            var bytes = format.getBytes(UTF_8);
+            putInt(bytes.length);
+            put(bytes);
+        }
+
+        long pathsOffset = position;
+        var pathOffsets = new long[entries.size()];
+        var pathLengths = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            var bytes = entries.get(i).path().toString().getBytes(UTF_8);
+            pathOffsets[i] = position - pathsOffset;
+            pathLengths[i] = bytes.length;
+            put(bytes);
+        }
+
+        var hashes = entries.stream()
+                .map(entry -> entry.hash().bytes())
+                .toArray(byte[][]::new);
+        align();
+        long recordsOffset = position;
+        for (int i = 0; i < entries.size(); i++) {
+            var entry = entries.get(i);
+            var hash = Arrays.copyOf(hashes[i], HASH_SIZE);
+            putInt(entry.dimension().width());
+            putInt(entry.dimension().height());
+            putInt(formatOf[i]);
+            putInt(pathLengths[i]);
+            putLong(entry.weight());
+            putLong(pathOffsets[i]);
+            put(hash);
+        }
+
+        long hashesOffset = position;
+        var byHash = IntStream.range(0, entries.size())
+                .boxed()
+                .sorted(Comparator.comparing(i -> hashes[i], Arrays::compareUnsigned))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        for (int record : byHash) {
+            putInt(record);
+        }
+        long end = position;
+        flush();
+
+        var header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(0, MAGIC)
+                .putInt(4, VERSION)
+                .putInt(HASH_LENGTH_OFFSET, hashLength)
+                .putInt(FORMAT_COUNT_OFFSET, formatIds.size())
+                .putLong(ENTRY_COUNT_OFFSET, entries.size())
+                .putLong(FORMATS_OFFSET, formatsOffset)
+                .putLong(PATHS_OFFSET, pathsOffset)
+                .putLong(RECORDS_OFFSET, recordsOffset)
+                .putLong(HASHES_OFFSET, hashesOffset)
+                .putLong(END_OFFSET, end)
+                .put(ALGORITHM_OFFSET, Arrays.copyOf(algorithm.displayName().getBytes(US_ASCII), ALGORITHM_LENGTH));
+        channel.write(header, 0);
+    }
+
+    // Records are kept 8-byte aligned
+    private void align() throws IOException {
+        while (position % Long.BYTES != 0) {
+            put(new byte[1]);
+        }
+    }
+
+    private void putInt(int value) throws IOException {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+        position += Integer.BYTES;
+    }
+
+    private void putLong(long value) throws IOException {
+        ensureRemaining(Long.BYTES);
+        buffer.putLong(value);
+        position += Long.BYTES;
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        for (int offset = 0; offset < bytes.length; ) {
+            ensureRemaining(1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+            position += length;
+        }
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        long start = position - buffer.remaining();
+        while (buffer.hasRemaining()) {
+            start += channel.write(buffer, start);
+        }
+        buffer.clear();
+    }
+
+}
@@ -0,0 +1,26 @@
+package net.agiledeveloper.nodup.image.index;
+
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.Image.Dimension;
+import net.agiledeveloper.nodup.image.hash.Hash;
+
+import java.nio.file.Path;
+
+public record IndexEntry(Path path, Dimension dimension, String format, long weight, Hash hash) {
+
+    public IndexEntry {
+        format = String.valueOf(format);
+    }
+
+    // Reads metadata and decodes the image to hash its pixels
+    public static IndexEntry of(Image image) {
+        return new IndexEntry(
+                image.path().toAbsolutePath().normalize(),
+                image.dimension(),
+                image.format(),
+                image.weight(),
+                image.hash()
+        );
+    }
+
+}
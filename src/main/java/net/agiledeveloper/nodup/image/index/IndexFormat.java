@@ -0,0 +1,40 @@
+package net.agiledeveloper.nodup.image.index;
+
+import net.agiledeveloper.nodup.image.hash.Hash;
+
+// Layout of an index file, all values big-endian:
+//   header    magic, version, hash length, format count, entry count, section offsets, algorithm name
+//   formats   format names, as length-prefixed UTF-8; records refer to them by position
+//   paths     UTF-8 paths, back to back; records refer to them by offset and length
+//   records   fixed-width records sorted by width, height, format and weight
+//   hashes    record numbers sorted by hash
+final class IndexFormat {
+
+    static final int MAGIC = 0x4E444958;
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 80;
+    static final int HASH_LENGTH_OFFSET = 8;
+    static final int FORMAT_COUNT_OFFSET = 12;
+    static final int ENTRY_COUNT_OFFSET = 16;
+    static final int FORMATS_OFFSET = 24;
+    static final int PATHS_OFFSET = 32;
+    static final int RECORDS_OFFSET = 40;
+    static final int HASHES_OFFSET = 48;
+    static final int END_OFFSET = 56;
+    static final int ALGORITHM_OFFSET = 64;
+    static final int ALGORITHM_LENGTH = 16;
+
+    static final int RECORD_SIZE = 64;
+    static final int WIDTH = 0;
+    static final int HEIGHT = 4;
+    static final int FORMAT = 8;
+    static final int PATH_LENGTH = 12;
+    static final int WEIGHT = 16;
+    static final int PATH = 24;
+    static final int HASH = 32;
+    static final int HASH_SIZE = Hash.MAX_BYTES;
+
+    private IndexFormat() { }
+
+}
@@ -1,39 +1,205 @@
 package net.agiledeveloper.nodup.image.processors;
 
 import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.hash.Hash;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
 
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import static net.agiledeveloper.nodup.App.logger;
 
 public class BucketProcessor implements ImageProcessor {
 
+    private final HashAlgorithm confirmation;
+    private final LongAdder skippedContentHashes = new LongAdder();
+    private final LongAdder avoidedDecodes = new LongAdder();
+    private final LongAdder directComparisons = new LongAdder();
+
+
+    public BucketProcessor() {
+        this(null);
+    }
+
+    public BucketProcessor(HashAlgorithm confirmation) {
+        this.confirmation = confirmation;
+    }
+
+
     @Override
     public Collection<Collision> detectCollisions(Collection<Image> images) {
+        List<List<Image>> identicalFiles = groupByContent(List.copyOf(images));
+        if (identicalFiles.size() == 1) {
+            avoidedDecodes.add(images.size());
+            return toCollisions(identicalFiles);
+        }
+
+        List<Image> representatives = identicalFiles.stream()
+                .map(files -> files.get(0))
+                .toList();
+        avoidedDecodes.add((long) images.size() - representatives.size());
+        List<Collision> pixelCollisions = representatives.size() == 2
+                ? comparePixels(representatives.get(0), representatives.get(1))
+                : detectPixelCollisions(representatives);
+
+        return toCollisions(merge(identicalFiles, pixelCollisions));
+    }
+
+    private List<Collision> detectPixelCollisions(List<Image> images) {
         var filesProcessed = new AtomicInteger(0);
         int size = images.size();
-        var map = new HashMap<String, Collision>();
 
-        for (var image : images) {
-            var hash = image.hash();
+        List<Collision> collisions = groupBy(images, image -> {
+            var hash = pixelHashOf(image);
             logger.finest(() -> "-".repeat(40));
             logger.finest(() -> printProgress(filesProcessed.incrementAndGet(), size));
             logger.finest(() -> "-".repeat(40));
             logger.finest(() -> "    " + hash + " | " + image);
-            if (map.containsKey(hash)) {
-                map.get(hash).add(image);
+            return hash;
+        }).stream()
+                .filter(group -> group.size() > 1)
+                .map(BucketProcessor::toCollision)
+                .toList();
+
+        return confirmation == null ? collisions : confirm(collisions);
+    }
+
+    // A pair is compared band by band rather than hashed, so that the comparison stops at the first difference
+    private List<Collision> comparePixels(Image original, Image candidate) {
+        directComparisons.increment();
+        try {
+            return original.hasSamePixels(candidate) ? List.of(new Collision(original, candidate)) : List.of();
+        } catch (Image.ReadException exception) {
+            logger.warning(() -> "Could not compare %s with %s: %s".formatted(original, candidate, exception.getMessage()));
+            return List.of();
+        }
+    }
+
+    private static Hash pixelHashOf(Image image) {
+        return pixelHashOf(image, Image::hash);
+    }
+
+    // Headers can be parsed for formats that ImageIO cannot decode: such images never match
+    private static Hash pixelHashOf(Image image, Function<Image, Hash> hashFunction) {
+        try {
+            return hashFunction.apply(image);
+        } catch (Image.ReadException exception) {
+            logger.warning(() -> "Could not decode %s: %s".formatted(image, exception.getMessage()));
+            return null;
+        }
+    }
+
+    protected String contentSummary() {
+        return "Sampling skipped %s full file reads; byte-identical files avoided %s decodes; %s pairs compared without hashing".formatted(
+                skippedContentHashes.sum(), avoidedDecodes.sum(), directComparisons.sum()
+        );
+    }
+
+    // Byte-identical files are grouped without being decoded; files that cannot be read stand alone
+    private List<List<Image>> groupByContent(List<Image> images) {
+        var groups = new ArrayList<List<Image>>();
+        for (var candidates : groupBy(images, image -> image.sampleHash().orElse(null))) {
+            if (candidates.size() > 1) {
+                groups.addAll(groupBy(candidates, image -> image.contentHash().orElse(null)));
             } else {
-                map.put(hash, new Collision(image));
+                if (candidates.get(0).sampleHash().isPresent()) {
+                    skippedContentHashes.increment();
+                }
+                groups.add(candidates);
             }
         }
+        if (confirmation == null) {
+            return groups;
+        }
+        var confirmed = new ArrayList<List<Image>>();
+        for (var group : groups) {
+            confirmed.addAll(group.size() == 1 ? List.of(group) : groupBy(group, image -> image.contentHash(confirmation).orElse(null)));
+        }
+        return confirmed;
+    }
 
-        return map.values().stream()
-                .filter(collision -> !collision.duplicates().isEmpty())
+    private List<Collision> confirm(List<Collision> candidates) {
+        var confirmed = new ArrayList<Collision>();
+        for (var candidate : candidates) {
+            List<Collision> collisions = groupBy(membersOf(candidate), image -> pixelHashOf(image, member -> member.hash(confirmation))).stream()
+                    .filter(group -> group.size() > 1)
+                    .map(BucketProcessor::toCollision)
+                    .toList();
+            if (collisions.size() != 1 || collisions.get(0).duplicates().size() != candidate.duplicates().size()) {
+                logger.warning(() -> "%s rejected %s".formatted(confirmation, candidate));
+            }
+            confirmed.addAll(collisions);
+        }
+        return confirmed;
+    }
+
+    private static List<List<Image>> merge(List<List<Image>> identicalFiles, List<Collision> pixelCollisions) {
+        var groupOf = new IdentityHashMap<Image, List<Image>>();
+        identicalFiles.forEach(files -> groupOf.put(files.get(0), files));
+
+        var merged = new ArrayList<List<Image>>();
+        var mergedGroups = Collections.newSetFromMap(new IdentityHashMap<List<Image>, Boolean>());
+        for (var collision : pixelCollisions) {
+            var images = new ArrayList<Image>();
+            for (var representative : membersOf(collision)) {
+                var files = groupOf.get(representative);
+                images.addAll(files);
+                mergedGroups.add(files);
+            }
+            merged.add(images);
+        }
+        identicalFiles.stream()
+                .filter(files -> !mergedGroups.contains(files))
+                .forEach(merged::add);
+        return merged;
+    }
+
+    private static List<Collision> toCollisions(List<List<Image>> groups) {
+        return groups.stream()
+                .filter(group -> group.size() > 1)
+                .map(BucketProcessor::toCollision)
                 .toList();
     }
 
+    private static Collision toCollision(List<Image> group) {
+        var duplicates = group.subList(1, group.size()).toArray(Image[]::new);
+        return new Collision(group.get(0), duplicates);
+    }
+
+    private static List<Image> membersOf(Collision collision) {
+        var members = new ArrayList<Image>();
+        members.add(collision.original());
+        members.addAll(collision.duplicates());
+        return members;
+    }
+
+    // Keys are computed in parallel, so that a single large bucket still uses every worker, then grouped
+    // sequentially in input order so that originals do not depend on scheduling.
+    // Images with a null key never match any other image.
+    private static List<List<Image>> groupBy(List<Image> images, Function<Image, Hash> keyFunction) {
+        var keys = new Hash[images.size()];
+        IntStream.range(0, keys.length)
+                .parallel()
+                .forEach(i -> keys[i] = keyFunction.apply(images.get(i)));
+
+        var groups = new HashGroups<Image>();
+        var ungrouped = new ArrayList<List<Image>>();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) {
+                ungrouped.add(new ArrayList<>(List.of(images.get(i))));
+            } else {
+                groups.add(keys[i], images.get(i));
+            }
+        }
+
+        var result = new ArrayList<>(groups.groups());
+        result.addAll(ungrouped);
+        return result;
+    }
+
     protected static String printProgress(int i, int n) {
         return printProgress(i, n, "Image");
     }
@@ -0,0 +1,119 @@
+package net.agiledeveloper.nodup.image.processors;
+
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.processors.ImageProcessor.Collision;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static net.agiledeveloper.nodup.App.logger;
+
+// Runs buckets largest-cost-first on a dedicated pool. Each worker drains the shared queue of buckets; once it is empty,
+// idle workers steal the subtasks that oversized buckets fork when hashing their images in parallel.
+public class BucketScheduler {
+
+    private final int parallelism;
+
+
+    public BucketScheduler(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+
+    public <B> List<Collision> run(List<B> buckets, ToLongFunction<B> cost, Function<B, Collection<Collision>> detector) {
+        var ordered = buckets.stream()
+                .sorted(Comparator.comparingLong(cost).reversed())
+                .toList();
+        var results = new ArrayList<Collection<Collision>>(Collections.nCopies(ordered.size(), List.of()));
+
+        var usage = new ConcurrentLinkedQueue<WorkerUsage>();
+        var pool = new ForkJoinPool(parallelism, workerPool -> new Worker(workerPool, usage), null, false);
+        long start = System.nanoTime();
+        try {
+            var next = new AtomicInteger();
+            var drainers = new ArrayList<ForkJoinTask<?>>();
+            for (int i = 0; i < Math.min(parallelism, ordered.size()); i++) {
+                drainers.add(pool.submit(() -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < ordered.size()) {
+                        results.set(index, detector.apply(ordered.get(index)));
+                    }
+                }));
+            }
+            drainers.forEach(ForkJoinTask::join);
+        } finally {
+            shutdown(pool);
+        }
+        logUtilization(usage, System.nanoTime() - start, ordered.size());
+
+        return results.stream()
+                .flatMap(Collection::stream)
+                .toList();
+    }
+
+    public static long costOf(Image.Dimension dimension, int count) {
+        return (long) count * dimension.width() * dimension.height();
+    }
+
+    private static void shutdown(ForkJoinPool pool) {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException cause) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void logUtilization(Collection<WorkerUsage> usage, long elapsedNanos, int bucketCount) {
+        long elapsedMillis = Math.max(1, elapsedNanos / 1_000_000);
+        logger.info(() -> "Processed %s buckets on %s workers in %s ms".formatted(bucketCount, parallelism, elapsedMillis));
+        usage.stream()
+                .sorted(Comparator.comparing(WorkerUsage::name))
+                .forEach(worker -> logger.info(() -> "    %s: %s ms busy (%s%%)".formatted(
+                        worker.name(), worker.cpuMillis(), Math.min(100, 100 * worker.cpuMillis() / elapsedMillis)
+                )));
+    }
+
+
+    private record WorkerUsage(String name, long cpuMillis) {
+    }
+
+    // Reports its CPU time when it terminates, which shutting the pool down guarantees before the report
+    private static class Worker extends ForkJoinWorkerThread {
+
+        private final Collection<WorkerUsage> usage;
+
+
+        private Worker(ForkJoinPool pool, Collection<WorkerUsage> usage) {
+            super(pool);
+            this.usage = usage;
+        }
+
+
+        @Override
+        protected void onTermination(Throwable exception) {
+            long cpuNanos = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+            if (cpuNanos >= 0) {
+                usage.add(new WorkerUsage(getName(), cpuNanos / 1_000_000));
+            }
+            super.onTermination(exception);
+        }
+
+    }
+
+}
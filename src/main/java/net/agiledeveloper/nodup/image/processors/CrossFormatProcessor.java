@@ -0,0 +1,116 @@
+package net.agiledeveloper.nodup.image.processors;
+
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.Image.Dimension;
+import net.agiledeveloper.nodup.image.hash.Hash;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static net.agiledeveloper.nodup.App.logger;
+
+// Finds pixel-identical images regardless of their format, such as a PNG and a BMP of the same picture.
+// Images are bucketed by dimension alone, then by a hash of a grid of sampled pixels, decoded through
+// source subsampling. Only images whose samples match are decoded in full and compared.
+public class CrossFormatProcessor extends BucketProcessor {
+
+    public static final int SAMPLE_SIZE = 32;
+
+
+    public CrossFormatProcessor() {
+        this(null);
+    }
+
+    public CrossFormatProcessor(HashAlgorithm confirmation) {
+        super(confirmation);
+    }
+
+
+    @Override
+    public Collection<Collision> detectCollisions(Collection<Image> images) {
+        var buckets = groupByDimension(List.copyOf(images));
+        long start = System.nanoTime();
+        var collisions = new ArrayList<Collision>();
+        int sampledImages = 0;
+        int potentialCollisions = 0;
+        for (var bucket : buckets) {
+            sampledImages += bucket.size();
+            for (var candidates : groupBySample(bucket)) {
+                if (candidates.size() > 1) {
+                    potentialCollisions += candidates.size();
+                    collisions.addAll(super.detectCollisions(candidates));
+                }
+            }
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        int sampled = sampledImages;
+        int matching = potentialCollisions;
+        logger.info(() -> "Sampled pixels of %s images in %s ms, %s of them with matching samples".formatted(
+                sampled, elapsed, matching
+        ));
+        logger.info(this::contentSummary);
+        return collisions;
+    }
+
+    // Buckets are sorted by path so that originals do not depend on the order images were walked in
+    private static List<List<Image>> groupByDimension(List<Image> images) {
+        var dimensions = new Dimension[images.size()];
+        IntStream.range(0, images.size()).parallel().forEach(i -> {
+            try {
+                dimensions[i] = images.get(i).dimension();
+            } catch (Image.ReadException exception) {
+                logger.fine("Ignoring %s: not an image file".formatted(images.get(i).path()));
+            }
+        });
+
+        var buckets = new LinkedHashMap<Dimension, List<Image>>();
+        for (int i = 0; i < dimensions.length; i++) {
+            if (dimensions[i] != null) {
+                buckets.computeIfAbsent(dimensions[i], dimension -> new ArrayList<>()).add(images.get(i));
+            }
+        }
+        var potentialCollisions = buckets.values().stream()
+                .filter(bucket -> bucket.size() > 1)
+                .map(bucket -> bucket.stream().sorted(Comparator.comparing(Image::path)).toList())
+                .toList();
+        logger.info(() -> "Found %s potential collisions over %s dimensions".formatted(
+                potentialCollisions.stream().mapToInt(List::size).sum(), potentialCollisions.size()
+        ));
+        return potentialCollisions;
+    }
+
+    // Images whose pixels cannot be sampled never match any other image
+    private static List<List<Image>> groupBySample(List<Image> images) {
+        var samples = new Hash[images.size()];
+        IntStream.range(0, images.size()).parallel().forEach(i -> {
+            try {
+                samples[i] = sampleHashOf(images.get(i));
+            } catch (IOException | Image.ReadException exception) {
+                logger.warning(() -> "Could not decode %s: %s".formatted(images.get(i), exception.getMessage()));
+            }
+        });
+
+        var groups = new HashGroups<Image>();
+        for (int i = 0; i < samples.length; i++) {
+            if (samples[i] != null) {
+                groups.add(samples[i], images.get(i));
+            }
+        }
+        return groups.groups();
+    }
+
+    private static Hash sampleHashOf(Image image) throws IOException {
+        int[] pixels = image.pixelSample(SAMPLE_SIZE, SAMPLE_SIZE);
+        var bytes = ByteBuffer.allocate(pixels.length * Integer.BYTES);
+        bytes.asIntBuffer().put(pixels);
+        return Hash.of(HashAlgorithm.XXH64.newHasher().digest(bytes.array()));
+    }
+
+}
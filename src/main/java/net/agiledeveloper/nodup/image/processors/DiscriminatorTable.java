@@ -0,0 +1,112 @@
+package net.agiledeveloper.nodup.image.processors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Open-addressing table of buckets keyed by width, height, format and weight, without allocating a key per image
+class DiscriminatorTable<T> {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int[] widths;
+    private int[] heights;
+    private int[] formats;
+    private long[] weights;
+    private List<T>[] buckets;
+    private int size;
+
+
+    DiscriminatorTable() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+
+    void add(int width, int height, int format, long weight, T member) {
+        int mask = buckets.length - 1;
+        int slot = hash(width, height, format, weight) & mask;
+        while (buckets[slot] != null) {
+            if (widths[slot] == width && heights[slot] == height && formats[slot] == format && weights[slot] == weight) {
+                buckets[slot].add(member);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        var bucket = new ArrayList<T>(2);
+        bucket.add(member);
+        insert(slot, width, height, format, weight, bucket);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(BucketConsumer<T> consumer) {
+        for (int slot = 0; slot < buckets.length; slot++) {
+            if (buckets[slot] != null) {
+                consumer.accept(widths[slot], heights[slot], formats[slot], weights[slot], buckets[slot]);
+            }
+        }
+    }
+
+    private void insert(int slot, int width, int height, int format, long weight, List<T> bucket) {
+        widths[slot] = width;
+        heights[slot] = height;
+        formats[slot] = format;
+        weights[slot] = weight;
+        buckets[slot] = bucket;
+        // Kept at most half full so that probe sequences stay short
+        if (++size > buckets.length / 2) {
+            grow();
+        }
+    }
+
+    private void grow() {
+        int[] oldWidths = widths;
+        int[] oldHeights = heights;
+        int[] oldFormats = formats;
+        long[] oldWeights = weights;
+        List<T>[] oldBuckets = buckets;
+
+        allocate(oldBuckets.length * 2);
+        int mask = buckets.length - 1;
+        for (int old = 0; old < oldBuckets.length; old++) {
+            if (oldBuckets[old] != null) {
+                int slot = hash(oldWidths[old], oldHeights[old], oldFormats[old], oldWeights[old]) & mask;
+                while (buckets[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                widths[slot] = oldWidths[old];
+                heights[slot] = oldHeights[old];
+                formats[slot] = oldFormats[old];
+                weights[slot] = oldWeights[old];
+                buckets[slot] = oldBuckets[old];
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void allocate(int capacity) {
+        widths = new int[capacity];
+        heights = new int[capacity];
+        formats = new int[capacity];
+        weights = new long[capacity];
+        buckets = new List[capacity];
+    }
+
+    private static int hash(int width, int height, int format, long weight) {
+        long h = weight * 0x9E3779B97F4A7C15L;
+        h ^= ((long) width << 32 | (height & 0xFFFFFFFFL)) * 0xC2B2AE3D27D4EB4FL;
+        h ^= format * 0x165667B19E3779F9L;
+        h ^= h >>> 31;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ h >>> 32);
+    }
+
+
+    interface BucketConsumer<T> {
+
+        void accept(int width, int height, int format, long weight, List<T> bucket);
+
+    }
+
+}
@@ -2,12 +2,16 @@ package net.agiledeveloper.nodup.image.processors;
 
 import net.agiledeveloper.nodup.image.Image;
 import net.agiledeveloper.nodup.image.Image.Dimension;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -17,13 +21,48 @@ import static net.agiledeveloper.nodup.App.logger;
 
 public class ExifProcessor extends BucketProcessor {
 
+    public static final int DEFAULT_METADATA_CONCURRENCY = 64;
+
+    private final int metadataConcurrency;
+    private final BucketScheduler scheduler;
+    private final FormatRegistry formats = new FormatRegistry();
+
+
+    public ExifProcessor() {
+        this(null);
+    }
+
+    public ExifProcessor(HashAlgorithm confirmation) {
+        this(confirmation, DEFAULT_METADATA_CONCURRENCY);
+    }
+
+    public ExifProcessor(HashAlgorithm confirmation, int metadataConcurrency) {
+        this(confirmation, metadataConcurrency, new BucketScheduler(Runtime.getRuntime().availableProcessors()));
+    }
+
+    public ExifProcessor(HashAlgorithm confirmation, int metadataConcurrency, BucketScheduler scheduler) {
+        super(confirmation);
+        if (metadataConcurrency < 1) {
+            throw new IllegalArgumentException("Metadata concurrency must be at least 1: " + metadataConcurrency);
+        }
+        this.metadataConcurrency = metadataConcurrency;
+        this.scheduler = scheduler;
+    }
+
+
     @Override
     public Collection<Collision> detectCollisions(Collection<Image> images) {
+        return detectCollisions(images.stream());
+    }
+
+    @Override
+    public Collection<Collision> detectCollisions(Stream<Image> images) {
         Map<Discriminator, PotentialCollision> potentialCollisions = groupByDiscriminator(images)
-                .filter(atLeastOnePotentialCollision())
                 .collect(toPotentialCollision());
 
-        return findActualCollisions(potentialCollisions);
+        List<Collision> collisions = findActualCollisions(potentialCollisions);
+        logger.info(this::contentSummary);
+        return collisions;
     }
 
 
@@ -33,17 +72,18 @@ public class ExifProcessor extends BucketProcessor {
         logBuckets(toFrequencyMap(potentialCollisions));
 
         var processedImages = new AtomicInteger(0);
-        return potentialCollisions.entrySet()
-                .parallelStream()
-                .flatMap(entry -> {
+        return scheduler.run(
+                List.copyOf(potentialCollisions.entrySet()),
+                entry -> BucketScheduler.costOf(entry.getKey().dimension(), entry.getValue().count()),
+                entry -> {
                     int progressIndex = processedImages.getAndAdd(entry.getValue().count);
                     double progress = (double) progressIndex / total * 100;
                     var stringBuilder = new StringBuilder();
                     logger.info(() -> String.format("%05.2f%%", progress));
                     logger.fine(() -> printPotentialCollision(stringBuilder, entry).toString());
                     return findCollisions(entry.getValue());
-                })
-                .toList();
+                }
+        );
     }
 
 
@@ -75,28 +115,74 @@ public class ExifProcessor extends BucketProcessor {
     }
 
 
-    private Stream<Collision> findCollisions(PotentialCollision potentialCollision) {
-        return super.detectCollisions(potentialCollision.images()).stream();
+    private Collection<Collision> findCollisions(PotentialCollision potentialCollision) {
+        return super.detectCollisions(potentialCollision.images());
     }
 
-    private Stream<Entry<Discriminator, Collection<Image>>> groupByDiscriminator(Collection<Image> images) {
-        var imagesByDiscriminator = new HashMap<Discriminator, Collection<Image>>();
-        for (Image image : images) {
-            try {
-                var key = new Discriminator(image);
-                imagesByDiscriminator.putIfAbsent(key, new ArrayList<>());
-                imagesByDiscriminator.get(key).add(image);
-            } catch (Image.ReadException exception) {
-                logger.fine("Ignoring %s: not an image file".formatted(image.path()));
-            }
+    // Metadata is read concurrently and only buckets of potential collisions are kept.
+    // Directory walks deliver images in no particular order: buckets are sorted by path so that
+    // the original of a collision does not change from one run to the next.
+    private Stream<Entry<Discriminator, Collection<Image>>> groupByDiscriminator(Stream<Image> images) {
+        long start = System.nanoTime();
+        var imagesByDiscriminator = new DiscriminatorTable<Image>();
+        var permits = new Semaphore(metadataConcurrency);
+        var failure = new AtomicReference<RuntimeException>();
+        var count = new AtomicLong();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            images.forEachOrdered(image -> {
+                count.incrementAndGet();
+                acquire(permits);
+                executor.execute(() -> {
+                    try {
+                        var dimension = image.dimension();
+                        int format = formats.idOf(image.format());
+                        long weight = image.weight();
+                        synchronized (imagesByDiscriminator) {
+                            imagesByDiscriminator.add(dimension.width(), dimension.height(), format, weight, image);
+                        }
+                    } catch (Image.ReadException exception) {
+                        logger.fine("Ignoring %s: not an image file".formatted(image.path()));
+                    } catch (RuntimeException exception) {
+                        failure.compareAndSet(null, exception);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            });
+        }
+        if (failure.get() != null) {
+            throw failure.get();
         }
-        return imagesByDiscriminator.entrySet().stream();
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        logger.info(() -> "Read metadata of %s images in %s ms".formatted(count.get(), elapsed));
+        var buckets = new ArrayList<Entry<Discriminator, Collection<Image>>>();
+        imagesByDiscriminator.forEach((width, height, format, weight, bucket) -> {
+            if (bucket.size() > 1) {
+                var key = new Discriminator(new Dimension(width, height), formats.nameOf(format), weight);
+                buckets.add(Map.entry(key, inPathOrder(bucket)));
+            }
+        });
+        return buckets.stream();
+    }
+
+    private static Collection<Image> inPathOrder(List<Image> group) {
+        return group.stream()
+                .sorted(Comparator.comparing(Image::path))
+                .toList();
     }
 
-    private static Predicate<Entry<Discriminator, Collection<Image>>> atLeastOnePotentialCollision() {
-        return entry -> entry.getValue().size() > 1;
+    private static void acquire(Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException cause) {
+            Thread.currentThread().interrupt();
+            throw new Image.ReadException(cause);
+        }
     }
 
+
     private Consumer<Entry<Discriminator, Integer>> printBucket() {
         return entry -> {
             var stringBuilder = new StringBuilder();
@@ -145,40 +231,16 @@ public class ExifProcessor extends BucketProcessor {
         }
     }
 
-    private static class Discriminator {
-
-        private final String value;
-        private final Dimension dimension;
-
-
-        private Discriminator(Image image) {
-            this.dimension = image.dimension();
-            this.value = discriminateFields(image);
-        }
-
+    // Only built once per bucket: images are grouped on the primitive fields directly
+    private record Discriminator(Dimension dimension, String format, long weight) {
 
         public String displayName() {
             return dimension.toString();
         }
 
-        @Override
-        public boolean equals(Object o) {
-            if (!(o instanceof Discriminator discriminator)) return false;
-            return Objects.equals(value, discriminator.value);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(value);
-        }
-
         @Override
         public String toString() {
-            return value;
-        }
-
-        private static String discriminateFields(Image image) {
-            return image.dimension() + "-" + image.format() + " " + image.weight();
+            return dimension + "-" + format + " " + weight;
         }
     }
 
@@ -0,0 +1,33 @@
+package net.agiledeveloper.nodup.image.processors;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Interns format names into small ordinals, so that keys compare formats as ints
+class FormatRegistry {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> names = new CopyOnWriteArrayList<>();
+
+
+    int idOf(String format) {
+        String name = String.valueOf(format);
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            return ids.computeIfAbsent(name, key -> {
+                names.add(key);
+                return names.size() - 1;
+            });
+        }
+    }
+
+    String nameOf(int id) {
+        return names.get(id);
+    }
+
+}
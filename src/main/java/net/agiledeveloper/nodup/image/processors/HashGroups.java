@@ -0,0 +1,65 @@
+package net.agiledeveloper.nodup.image.processors;
+
+import net.agiledeveloper.nodup.image.hash.Hash;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Groups members by hash in insertion order, probing linearly over the precomputed hash codes
+class HashGroups<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Hash[] keys = new Hash[INITIAL_CAPACITY];
+    private int[] groupIndexes = new int[INITIAL_CAPACITY];
+    private final List<List<T>> groups = new ArrayList<>();
+
+
+    void add(Hash key, T member) {
+        int mask = keys.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                groups.get(groupIndexes[slot]).add(member);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        groupIndexes[slot] = groups.size();
+        var group = new ArrayList<T>(2);
+        group.add(member);
+        groups.add(group);
+        // Kept at most half full so that probe sequences stay short
+        if (groups.size() > keys.length / 2) {
+            grow();
+        }
+    }
+
+    List<List<T>> groups() {
+        return groups;
+    }
+
+    private void grow() {
+        Hash[] oldKeys = keys;
+        int[] oldGroupIndexes = groupIndexes;
+        keys = new Hash[oldKeys.length * 2];
+        groupIndexes = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (oldKeys[old] != null) {
+                int slot = spread(oldKeys[old].hashCode()) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[old];
+                groupIndexes[slot] = oldGroupIndexes[old];
+            }
+        }
+    }
+
+    private static int spread(int hashCode) {
+        return hashCode ^ hashCode >>> 16;
+    }
+
+}
@@ -5,6 +5,7 @@ import net.agiledeveloper.nodup.image.Image;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
 
@@ -16,6 +17,10 @@ public interface ImageProcessor {
 
     Collection<Collision> detectCollisions(Collection<Image> images);
 
+    default Collection<Collision> detectCollisions(Stream<Image> images) {
+        return detectCollisions(images.toList());
+    }
+
 
     class Collision {
 
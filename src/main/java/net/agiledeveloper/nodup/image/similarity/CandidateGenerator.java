@@ -0,0 +1,19 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+// Finds the pairs of fingerprints within a Hamming distance of each other. Generators may report
+// pairs farther apart, which are filtered out afterwards, and may report a pair more than once.
+public interface CandidateGenerator {
+
+    void forEachCandidate(long[] fingerprints, int threshold, PairConsumer consumer);
+
+    String name();
+
+
+    @FunctionalInterface
+    interface PairConsumer {
+
+        void accept(int a, int b);
+
+    }
+
+}
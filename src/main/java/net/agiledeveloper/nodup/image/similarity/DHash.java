@@ -0,0 +1,38 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+import net.agiledeveloper.nodup.image.Image;
+
+import java.io.IOException;
+
+// Difference hash: one bit per horizontally adjacent pair of cells of a 9x8 thumbnail, set when
+// brightness increases. Survives rescaling, recompression and small color shifts.
+public final class DHash {
+
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 8;
+
+    private DHash() { }
+
+
+    public static long of(Image image) throws IOException {
+        return of(image.thumbnail(WIDTH, HEIGHT));
+    }
+
+    static long of(int[] thumbnail) {
+        long fingerprint = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH - 1; x++) {
+                fingerprint <<= 1;
+                if (thumbnail[y * WIDTH + x] < thumbnail[y * WIDTH + x + 1]) {
+                    fingerprint |= 1;
+                }
+            }
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+}
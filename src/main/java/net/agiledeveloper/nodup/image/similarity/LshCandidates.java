@@ -0,0 +1,124 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static net.agiledeveloper.nodup.App.logger;
+
+// Locality-sensitive hashing: each band samples a fixed random subset of rows bits, and fingerprints
+// agreeing on all the bits of a band become candidates. Close pairs agree on some band with high
+// probability, distant ones rarely do: recall is traded for throughput through the bands and rows.
+// Candidates are not verified here, and a pair may be reported once per band it agrees on.
+public class LshCandidates implements CandidateGenerator {
+
+    public static final int DEFAULT_BANDS = 32;
+    public static final int DEFAULT_ROWS = 16;
+
+    private static final int MAX_BANDS = 256;
+    private static final int MAX_ROWS = 32;
+    private static final long SEED = 0x6E6F647570L;
+
+    private final int bands;
+    private final int rows;
+    private final long[] masks;
+
+
+    public LshCandidates() {
+        this(DEFAULT_BANDS, DEFAULT_ROWS);
+    }
+
+    public LshCandidates(int bands, int rows) {
+        if (bands < 1 || bands > MAX_BANDS) {
+            throw new IllegalArgumentException("Band count must be between 1 and %s: %s".formatted(MAX_BANDS, bands));
+        }
+        if (rows < 1 || rows > MAX_ROWS) {
+            throw new IllegalArgumentException("Row count must be between 1 and %s: %s".formatted(MAX_ROWS, rows));
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.masks = masks(bands, rows);
+    }
+
+
+    // Parses <bands>x<rows>, e.g. 32x16
+    public static LshCandidates parse(String value) {
+        String[] parts = value.trim().toLowerCase().split("x");
+        try {
+            if (parts.length == 2) {
+                return new LshCandidates(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Value of --lsh must be <bands>x<rows> (e.g., 32x16): " + value);
+    }
+
+    @Override
+    public void forEachCandidate(long[] fingerprints, int threshold, PairConsumer consumer) {
+        logger.fine(() -> "%s finds pairs %s bits apart with a probability of %.3f".formatted(
+                name(), threshold, recallAt(threshold)
+        ));
+        // Band keys and ids packed together, so that a band is grouped by sorting primitives
+        var keys = new long[fingerprints.length];
+        for (long mask : masks) {
+            for (int id = 0; id < fingerprints.length; id++) {
+                keys[id] = (long) mix(fingerprints[id] & mask) << 32 | id;
+            }
+            Arrays.sort(keys);
+            reportBuckets(keys, consumer);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "locality-sensitive hashing %sx%s".formatted(bands, rows);
+    }
+
+    // Probability that a pair of fingerprints the given number of bits apart becomes a candidate
+    public double recallAt(int distance) {
+        double agreeing = 1;
+        for (int row = 0; row < rows; row++) {
+            agreeing *= (double) (Long.SIZE - distance - row) / (Long.SIZE - row);
+        }
+        return 1 - Math.pow(1 - Math.max(0, agreeing), bands);
+    }
+
+    private static void reportBuckets(long[] keys, PairConsumer consumer) {
+        int start = 0;
+        while (start < keys.length) {
+            int end = start + 1;
+            while (end < keys.length && keys[end] >>> 32 == keys[start] >>> 32) {
+                end++;
+            }
+            for (int a = start; a < end; a++) {
+                for (int b = a + 1; b < end; b++) {
+                    consumer.accept((int) keys[a], (int) keys[b]);
+                }
+            }
+            start = end;
+        }
+    }
+
+    // Each band keeps rows distinct bits, drawn with a fixed seed so that runs are reproducible
+    private static long[] masks(int bands, int rows) {
+        var random = new Random(SEED);
+        var masks = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            while (Long.bitCount(masks[band]) < rows) {
+                masks[band] |= 1L << random.nextInt(Long.SIZE);
+            }
+        }
+        return masks;
+    }
+
+    // Murmur3 finalizer; colliding keys only add candidates
+    private static int mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return (int) value;
+    }
+
+}
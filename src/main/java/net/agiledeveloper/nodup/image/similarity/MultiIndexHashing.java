@@ -0,0 +1,168 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+import static net.agiledeveloper.nodup.App.logger;
+
+// Splits fingerprints into m chunks and indexes each chunk in its own table. By the pigeonhole
+// principle, two fingerprints within t bits of each other differ by at most t / m bits on at least
+// one chunk, so only the table entries that close to a chunk of the query have to be visited.
+// The number of chunks is picked per call from the number of fingerprints and the threshold.
+public class MultiIndexHashing implements CandidateGenerator {
+
+    // Tables of more than 2^22 entries cost more to build than they save
+    private static final int MAX_CHUNK_BITS = 22;
+    private static final int MAX_CHUNKS = 16;
+    // A table lookup is a cache miss, while bucket entries are scanned sequentially
+    private static final double LOOKUP_COST = 16;
+
+    private final CandidateGenerator fallback = new PairwiseCandidates();
+
+
+    @Override
+    public void forEachCandidate(long[] fingerprints, int threshold, PairConsumer consumer) {
+        int chunkCount = chunkCount(fingerprints.length, threshold);
+        if (chunkCount == 0) {
+            fallback.forEachCandidate(fingerprints, threshold, consumer);
+            return;
+        }
+        logger.fine(() -> "Indexing %s fingerprints in %s chunks".formatted(fingerprints.length, chunkCount));
+        new Tables(fingerprints, chunkCount, threshold).forEachCandidate(consumer);
+    }
+
+    @Override
+    public String name() {
+        return "multi-index hashing";
+    }
+
+    // Picks the number of chunks minimizing the estimated table and lookup costs, or 0 when
+    // comparing every pair is cheaper
+    static int chunkCount(int size, int threshold) {
+        double best = (double) size * size / 2;
+        int bestChunkCount = 0;
+        for (int chunkCount = (Long.SIZE + MAX_CHUNK_BITS - 1) / MAX_CHUNK_BITS; chunkCount <= MAX_CHUNKS; chunkCount++) {
+            int bits = Long.SIZE / chunkCount;
+            int radius = threshold / chunkCount;
+            double tableEntries = Math.pow(2, bits);
+            double lookups = 0;
+            double combinations = 1;
+            for (int k = 0; k <= radius; k++) {
+                lookups += combinations;
+                combinations = combinations * (bits - k) / (k + 1);
+            }
+            double cost = chunkCount * (tableEntries + size + size * lookups * (LOOKUP_COST + size / tableEntries));
+            if (cost < best) {
+                best = cost;
+                bestChunkCount = chunkCount;
+            }
+        }
+        return bestChunkCount;
+    }
+
+
+    private static class Tables {
+
+        private final long[] fingerprints;
+        private final int radius;
+        private final int[] shifts;
+        private final int[] masks;
+        // Entries of chunk c with value v are ids[c][offsets[c][v] .. offsets[c][v + 1]], and their
+        // fingerprints are copied in the same order so that buckets are scanned sequentially
+        private final int[][] offsets;
+        private final int[][] ids;
+        private final long[][] sortedFingerprints;
+        private final int threshold;
+
+
+        private Tables(long[] fingerprints, int chunkCount, int threshold) {
+            this.fingerprints = fingerprints;
+            this.threshold = threshold;
+            this.radius = threshold / chunkCount;
+            this.shifts = new int[chunkCount];
+            this.masks = new int[chunkCount];
+            this.offsets = new int[chunkCount][];
+            this.ids = new int[chunkCount][];
+            this.sortedFingerprints = new long[chunkCount][];
+            int shift = 0;
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                // The first chunks take the remaining bits when 64 is not a multiple of the chunk count
+                int bits = Long.SIZE / chunkCount + (chunk < Long.SIZE % chunkCount ? 1 : 0);
+                shifts[chunk] = shift;
+                masks[chunk] = (1 << bits) - 1;
+                shift += bits;
+                index(chunk);
+            }
+        }
+
+
+        // Counting sort of the fingerprints by chunk value
+        private void index(int chunk) {
+            var counts = new int[masks[chunk] + 2];
+            for (long fingerprint : fingerprints) {
+                counts[chunkOf(fingerprint, chunk) + 1]++;
+            }
+            for (int value = 1; value < counts.length; value++) {
+                counts[value] += counts[value - 1];
+            }
+            var sortedIds = new int[fingerprints.length];
+            var sorted = new long[fingerprints.length];
+            var next = counts.clone();
+            for (int id = 0; id < fingerprints.length; id++) {
+                int position = next[chunkOf(fingerprints[id], chunk)]++;
+                sortedIds[position] = id;
+                sorted[position] = fingerprints[id];
+            }
+            offsets[chunk] = counts;
+            ids[chunk] = sortedIds;
+            sortedFingerprints[chunk] = sorted;
+        }
+
+        // Queries follow the order of each table, so that consecutive queries visit nearby buckets
+        private void forEachCandidate(PairConsumer consumer) {
+            for (int chunk = 0; chunk < shifts.length; chunk++) {
+                for (int position = 0; position < fingerprints.length; position++) {
+                    int id = ids[chunk][position];
+                    visit(id, chunk, chunkOf(sortedFingerprints[chunk][position], chunk), 0, radius, consumer);
+                }
+            }
+        }
+
+        // Visits every chunk value within the remaining number of bit flips of the query chunk
+        private void visit(int id, int chunk, int value, int firstBit, int flips, PairConsumer consumer) {
+            scan(id, chunk, value, consumer);
+            if (flips > 0) {
+                int bits = Integer.bitCount(masks[chunk]);
+                for (int bit = firstBit; bit < bits; bit++) {
+                    visit(id, chunk, value ^ (1 << bit), bit + 1, flips - 1, consumer);
+                }
+            }
+        }
+
+        // Only pairs within the threshold are reported
+        private void scan(int id, int chunk, int value, PairConsumer consumer) {
+            int[] chunkIds = ids[chunk];
+            long[] chunkFingerprints = sortedFingerprints[chunk];
+            long fingerprint = fingerprints[id];
+            for (int i = offsets[chunk][value], end = offsets[chunk][value + 1]; i < end; i++) {
+                long difference = fingerprint ^ chunkFingerprints[i];
+                if (Long.bitCount(difference) <= threshold && chunkIds[i] > id && !foundInEarlierChunk(difference, chunk)) {
+                    consumer.accept(id, chunkIds[i]);
+                }
+            }
+        }
+
+        // A pair close enough on several chunks is only reported by the first of them
+        private boolean foundInEarlierChunk(long difference, int chunk) {
+            for (int earlier = 0; earlier < chunk; earlier++) {
+                if (Integer.bitCount(chunkOf(difference, earlier)) <= radius) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int chunkOf(long fingerprint, int chunk) {
+            return (int) (fingerprint >>> shifts[chunk]) & masks[chunk];
+        }
+
+    }
+
+}
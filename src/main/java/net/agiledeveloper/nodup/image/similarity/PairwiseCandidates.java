@@ -0,0 +1,22 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+// Compares every fingerprint with every other one: exact, but quadratic
+public class PairwiseCandidates implements CandidateGenerator {
+
+    @Override
+    public void forEachCandidate(long[] fingerprints, int threshold, PairConsumer consumer) {
+        for (int a = 0; a < fingerprints.length; a++) {
+            for (int b = a + 1; b < fingerprints.length; b++) {
+                if (DHash.distance(fingerprints[a], fingerprints[b]) <= threshold) {
+                    consumer.accept(a, b);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return "pairwise";
+    }
+
+}
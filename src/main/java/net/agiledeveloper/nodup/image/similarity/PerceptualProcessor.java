@@ -0,0 +1,141 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.Image.ReadException;
+import net.agiledeveloper.nodup.image.processors.ImageProcessor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static net.agiledeveloper.nodup.App.logger;
+
+// Groups images whose perceptual fingerprints are within a Hamming distance of each other, so that
+// recompressed, re-saved or rescaled copies of a photo are found. Candidate groups are transitive, but
+// only the images within the threshold of the original of a group are reported as its duplicates;
+// the others are split into groups of their own.
+public class PerceptualProcessor implements ImageProcessor {
+
+    public static final int DEFAULT_THRESHOLD = 10;
+
+    // Larger images, then heavier files, are kept as originals; paths break ties so that originals are stable
+    static final Comparator<Image> BEST_FIRST = Comparator
+            .comparingLong((Image image) -> (long) image.width() * image.height())
+            .thenComparingLong(Image::weight)
+            .reversed()
+            .thenComparing(Image::path);
+
+    private final int threshold;
+    private final CandidateGenerator candidates;
+
+
+    public PerceptualProcessor() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public PerceptualProcessor(int threshold) {
+        this(threshold, new MultiIndexHashing());
+    }
+
+    public PerceptualProcessor(int threshold, CandidateGenerator candidates) {
+        if (threshold < 0 || threshold >= Long.SIZE) {
+            throw new IllegalArgumentException("Similarity threshold must be between 0 and 63: " + threshold);
+        }
+        this.threshold = threshold;
+        this.candidates = candidates;
+    }
+
+
+    @Override
+    public Collection<Collision> detectCollisions(Collection<Image> images) {
+        var fingerprinted = fingerprint(List.copyOf(images));
+        var groups = group(fingerprinted.fingerprints());
+
+        var collisions = new ArrayList<Collision>();
+        for (List<Integer> group : groups) {
+            collisions.addAll(split(group, fingerprinted));
+        }
+        return collisions;
+    }
+
+    // A chain of close images can link images that are far apart: each original only keeps the members
+    // within the threshold of itself, and the best of the remaining members seeds the next collision
+    private List<Collision> split(List<Integer> group, Fingerprinted fingerprinted) {
+        var remaining = group.stream()
+                .sorted(Comparator.comparing(fingerprinted.images()::get, BEST_FIRST))
+                .toList();
+        var collisions = new ArrayList<Collision>();
+        while (remaining.size() > 1) {
+            long original = fingerprinted.fingerprints()[remaining.get(0)];
+            var duplicates = new ArrayList<Image>();
+            var others = new ArrayList<Integer>();
+            for (int member : remaining.subList(1, remaining.size())) {
+                if (DHash.distance(original, fingerprinted.fingerprints()[member]) <= threshold) {
+                    duplicates.add(fingerprinted.images().get(member));
+                } else {
+                    others.add(member);
+                }
+            }
+            if (!duplicates.isEmpty()) {
+                collisions.add(new Collision(fingerprinted.images().get(remaining.get(0)), duplicates.toArray(Image[]::new)));
+            }
+            remaining = others;
+        }
+        return collisions;
+    }
+
+    private Fingerprinted fingerprint(List<Image> images) {
+        long start = System.nanoTime();
+        var fingerprints = new long[images.size()];
+        var readable = new boolean[images.size()];
+        IntStream.range(0, images.size()).parallel().forEach(i -> {
+            try {
+                fingerprints[i] = DHash.of(images.get(i));
+                readable[i] = true;
+            } catch (IOException | ReadException exception) {
+                logger.fine(() -> "Could not fingerprint %s: %s".formatted(images.get(i), exception.getMessage()));
+            }
+        });
+
+        var readableImages = new ArrayList<Image>();
+        var readableFingerprints = new long[images.size()];
+        for (int i = 0; i < images.size(); i++) {
+            if (readable[i]) {
+                readableFingerprints[readableImages.size()] = fingerprints[i];
+                readableImages.add(images.get(i));
+            }
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        logger.info(() -> "Fingerprinted %s out of %s images in %s ms".formatted(readableImages.size(), images.size(), elapsed));
+        return new Fingerprinted(readableImages, Arrays.copyOf(readableFingerprints, readableImages.size()));
+    }
+
+    private List<List<Integer>> group(long[] fingerprints) {
+        long start = System.nanoTime();
+        var unionFind = new UnionFind(fingerprints.length);
+        var candidatePairs = new AtomicLong();
+        var matchingPairs = new AtomicLong();
+        candidates.forEachCandidate(fingerprints, threshold, (a, b) -> {
+            candidatePairs.incrementAndGet();
+            if (DHash.distance(fingerprints[a], fingerprints[b]) <= threshold) {
+                matchingPairs.incrementAndGet();
+                unionFind.union(a, b);
+            }
+        });
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        logger.info(() -> "Checked %s candidate pairs (%s) in %s ms, %s within %s bits".formatted(
+                candidatePairs.get(), candidates.name(), elapsed, matchingPairs.get(), threshold
+        ));
+        return unionFind.groups();
+    }
+
+
+    private record Fingerprinted(List<Image> images, long[] fingerprints) { }
+
+}
@@ -0,0 +1,204 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.Image.ReadException;
+import net.agiledeveloper.nodup.image.processors.ImageProcessor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static net.agiledeveloper.nodup.App.logger;
+
+// Groups resized copies of a photo, such as a 1600x1200 export of a 4000x3000 original. Every image
+// is normalized to a 16x16 luminance thumbnail, decoded from a subsample of its pixels. Images are
+// bucketed by aspect ratio, candidates within a bucket are found through an average hash of the
+// thumbnail, and only candidates whose thumbnails are close are grouped together. Each original only
+// keeps the members of its group that match it directly.
+public class ResizedProcessor implements ImageProcessor {
+
+    // Exports round their dimensions, so that aspect ratios only match within a tolerance
+    static final double ASPECT_TOLERANCE = 0.01;
+
+    static final int SIZE = 16;
+    private static final int CELLS = SIZE * SIZE;
+    private static final int HASH_THRESHOLD = 8;
+    // Mean absolute difference of thumbnail cells, in luminance levels (0-255)
+    private static final int MAX_DIFFERENCE = 6;
+
+    private static final double ASPECT_STEP = Math.log1p(ASPECT_TOLERANCE);
+
+    private final CandidateGenerator candidates;
+
+
+    public ResizedProcessor() {
+        this(new MultiIndexHashing());
+    }
+
+    public ResizedProcessor(CandidateGenerator candidates) {
+        this.candidates = candidates;
+    }
+
+
+    @Override
+    public Collection<Collision> detectCollisions(Collection<Image> images) {
+        var normalized = normalize(List.copyOf(images));
+        var collisions = new ArrayList<Collision>();
+        for (List<Integer> group : group(normalized)) {
+            collisions.addAll(split(group, normalized));
+        }
+        return collisions;
+    }
+
+    // Members that do not match the original of their group seed the next collision, see PerceptualProcessor
+    private static List<Collision> split(List<Integer> group, Normalized normalized) {
+        var remaining = group.stream()
+                .sorted(Comparator.comparing(normalized.images()::get, PerceptualProcessor.BEST_FIRST))
+                .toList();
+        var collisions = new ArrayList<Collision>();
+        while (remaining.size() > 1) {
+            int original = remaining.get(0);
+            var duplicates = new ArrayList<Image>();
+            var others = new ArrayList<Integer>();
+            for (int member : remaining.subList(1, remaining.size())) {
+                if (matches(normalized, original, member)) {
+                    duplicates.add(normalized.images().get(member));
+                } else {
+                    others.add(member);
+                }
+            }
+            if (!duplicates.isEmpty()) {
+                collisions.add(new Collision(normalized.images().get(original), duplicates.toArray(Image[]::new)));
+            }
+            remaining = others;
+        }
+        return collisions;
+    }
+
+    private Normalized normalize(List<Image> images) {
+        long start = System.nanoTime();
+        var thumbnails = new byte[images.size()][];
+        IntStream.range(0, images.size()).parallel().forEach(i -> {
+            try {
+                var image = images.get(i);
+                if (image.width() > 0 && image.height() > 0) {
+                    thumbnails[i] = toBytes(image.thumbnail(SIZE, SIZE));
+                }
+            } catch (IOException | ReadException exception) {
+                logger.fine(() -> "Could not normalize %s: %s".formatted(images.get(i), exception.getMessage()));
+            }
+        });
+
+        var readableImages = new ArrayList<Image>();
+        var readableThumbnails = new ArrayList<byte[]>();
+        for (int i = 0; i < images.size(); i++) {
+            if (thumbnails[i] != null) {
+                readableImages.add(images.get(i));
+                readableThumbnails.add(thumbnails[i]);
+            }
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        logger.info(() -> "Normalized %s out of %s images in %s ms".formatted(readableImages.size(), images.size(), elapsed));
+        return new Normalized(readableImages, readableThumbnails);
+    }
+
+    private List<List<Integer>> group(Normalized normalized) {
+        long start = System.nanoTime();
+        int count = normalized.images().size();
+        var fingerprints = new long[count];
+        var buckets = new TreeMap<Long, List<Integer>>();
+        for (int i = 0; i < count; i++) {
+            fingerprints[i] = averageHash(normalized.thumbnails().get(i));
+            buckets.computeIfAbsent((long) Math.floor(normalized.aspects()[i] / ASPECT_STEP), key -> new ArrayList<>()).add(i);
+        }
+
+        // Aspect ratios within the tolerance fall in the same or adjacent buckets
+        var unionFind = new UnionFind(count);
+        var candidatePairs = new AtomicLong();
+        var matchingPairs = new AtomicLong();
+        for (var bucket : buckets.entrySet()) {
+            var members = new ArrayList<>(bucket.getValue());
+            members.addAll(buckets.getOrDefault(bucket.getKey() + 1, List.of()));
+            if (members.size() < 2) {
+                continue;
+            }
+            var memberFingerprints = members.stream().mapToLong(member -> fingerprints[member]).toArray();
+            candidates.forEachCandidate(memberFingerprints, HASH_THRESHOLD, (a, b) -> {
+                int first = members.get(a);
+                int second = members.get(b);
+                candidatePairs.incrementAndGet();
+                if (matches(normalized, first, second)) {
+                    matchingPairs.incrementAndGet();
+                    unionFind.union(first, second);
+                }
+            });
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        logger.info(() -> "Checked %s candidate pairs (%s) across %s aspect ratios in %s ms, %s with matching thumbnails".formatted(
+                candidatePairs.get(), candidates.name(), buckets.size(), elapsed, matchingPairs.get()
+        ));
+        return unionFind.groups();
+    }
+
+    private static boolean matches(Normalized normalized, int a, int b) {
+        return Math.abs(normalized.aspects()[a] - normalized.aspects()[b]) <= ASPECT_STEP
+                && difference(normalized.thumbnails().get(a), normalized.thumbnails().get(b)) <= MAX_DIFFERENCE;
+    }
+
+    // One bit per cell of an 8x8 reduction of the thumbnail, set when the cell is brighter than average
+    static long averageHash(byte[] thumbnail) {
+        int half = SIZE / 2;
+        var cells = new int[half * half];
+        long total = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int value = thumbnail[y * SIZE + x] & 0xFF;
+                cells[(y / 2) * half + x / 2] += value;
+                total += value;
+            }
+        }
+        long fingerprint = 0;
+        for (int cell : cells) {
+            fingerprint <<= 1;
+            // Each cell sums 4 values, the total sums 4 * 64 of them
+            if ((long) cell * cells.length > total) {
+                fingerprint |= 1;
+            }
+        }
+        return fingerprint;
+    }
+
+    static int difference(byte[] a, byte[] b) {
+        int sum = 0;
+        for (int i = 0; i < CELLS; i++) {
+            sum += Math.abs((a[i] & 0xFF) - (b[i] & 0xFF));
+        }
+        return sum / CELLS;
+    }
+
+    private static byte[] toBytes(int[] thumbnail) {
+        var bytes = new byte[thumbnail.length];
+        for (int i = 0; i < thumbnail.length; i++) {
+            bytes[i] = (byte) thumbnail[i];
+        }
+        return bytes;
+    }
+
+
+    // Aspect ratios are kept as logarithms, so that their tolerance is the same in both orientations
+    private record Normalized(List<Image> images, List<byte[]> thumbnails, double[] aspects) {
+
+        private Normalized(List<Image> images, List<byte[]> thumbnails) {
+            this(images, thumbnails, images.stream()
+                    .mapToDouble(image -> Math.log((double) image.width() / image.height()))
+                    .toArray());
+        }
+
+    }
+
+}
@@ -0,0 +1,56 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+class UnionFind {
+
+    private final int[] parents;
+
+
+    UnionFind(int size) {
+        parents = new int[size];
+        for (int i = 0; i < size; i++) {
+            parents[i] = i;
+        }
+    }
+
+
+    int find(int element) {
+        int root = element;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+        // Path compression
+        while (parents[element] != root) {
+            int next = parents[element];
+            parents[element] = root;
+            element = next;
+        }
+        return root;
+    }
+
+    // The smallest element stays the root, so that groups are rooted at their first image
+    void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA < rootB) {
+            parents[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parents[rootA] = rootB;
+        }
+    }
+
+    // Groups of more than one element, in the order of their roots
+    List<List<Integer>> groups() {
+        var groups = new LinkedHashMap<Integer, List<Integer>>();
+        for (int i = 0; i < parents.length; i++) {
+            groups.computeIfAbsent(find(i), root -> new ArrayList<>()).add(i);
+        }
+        return groups.values().stream()
+                .filter(group -> group.size() > 1)
+                .toList();
+    }
+
+}
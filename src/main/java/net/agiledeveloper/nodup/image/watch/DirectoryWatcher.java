@@ -0,0 +1,223 @@
+package net.agiledeveloper.nodup.image.watch;
+
+import net.agiledeveloper.nodup.App.Action;
+import net.agiledeveloper.nodup.bin.Bin;
+import net.agiledeveloper.nodup.bin.Bin.BinException;
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.Image.ReadException;
+import net.agiledeveloper.nodup.image.ImageProvider;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static net.agiledeveloper.nodup.App.logger;
+
+// Watches directories recursively and bins new files duplicating an already known image.
+// Files are only read once no event was received for them during the debounce delay, so that
+// files still being written are not hashed several times.
+public class DirectoryWatcher implements AutoCloseable {
+
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofSeconds(2);
+
+    private final ImageProvider imageProvider;
+    private final Bin bin;
+    private final Action action;
+    private final long debounceNanos;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Set<Path> registered = new HashSet<>();
+    private final List<Path> roots = new ArrayList<>();
+    private final Map<Path, Long> pending = new LinkedHashMap<>();
+    private final LiveIndex index = new LiveIndex();
+    private final Path binRoot;
+    private volatile boolean closed;
+
+
+    public DirectoryWatcher(ImageProvider imageProvider, Bin bin, Action action, Duration debounce) {
+        this.imageProvider = imageProvider;
+        this.bin = bin;
+        this.action = action;
+        this.debounceNanos = debounce.toNanos();
+        this.binRoot = bin.root().toAbsolutePath().normalize();
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException cause) {
+            throw new ReadException(cause);
+        }
+    }
+
+
+    // Blocks until the watcher is closed
+    public void watch(Collection<Path> roots) {
+        for (Path root : roots) {
+            this.roots.add(root.toAbsolutePath().normalize());
+        }
+        this.roots.forEach(this::register);
+        logger.info(() -> "Watching %s directories for new images".formatted(directories.size()));
+        try {
+            while (!closed) {
+                var key = watchService.poll(pollTimeoutNanos(), TimeUnit.NANOSECONDS);
+                if (key != null) {
+                    processEvents(key);
+                }
+                processPendingFiles();
+            }
+        } catch (ClosedWatchServiceException ignored) {
+            // Closed while waiting for events
+        } catch (InterruptedException cause) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info(() -> "Stopped watching, %s images indexed".formatted(index.size()));
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException exception) {
+            logger.warning(() -> "Could not stop watching: " + exception.getMessage());
+        }
+    }
+
+    private long pollTimeoutNanos() {
+        if (pending.isEmpty()) {
+            return debounceNanos;
+        }
+        long earliest = pending.values().iterator().next();
+        return Math.max(0, earliest - System.nanoTime());
+    }
+
+    private void processEvents(WatchKey key) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                logger.warning("Too many file system events, rescanning watched directories");
+                roots.forEach(this::register);
+            } else if (directory != null) {
+                processEvent(event.kind(), directory.resolve((Path) event.context()));
+            }
+        }
+        if (!key.reset()) {
+            registered.remove(directories.remove(key));
+        }
+    }
+
+    private void processEvent(WatchEvent.Kind<?> kind, Path path) {
+        if (kind == ENTRY_DELETE) {
+            pending.remove(path);
+            index.removeAll(path);
+        } else if (Files.isDirectory(path)) {
+            if (kind == ENTRY_CREATE) {
+                register(path);
+            }
+        } else {
+            schedule(path);
+        }
+    }
+
+    // Files created before the directory was registered are picked up by the walk
+    private void register(Path root) {
+        if (root.startsWith(binRoot)) {
+            return;
+        }
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                    if (directory.startsWith(binRoot)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (!registered.contains(directory)) {
+                        directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+                        registered.add(directory);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile() && !index.contains(file)) {
+                        schedule(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                    logger.fine(() -> "Ignoring %s: %s".formatted(file, exception.getMessage()));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException exception) {
+            logger.warning(() -> "Could not watch %s: %s".formatted(root, exception.getMessage()));
+        }
+    }
+
+    private void schedule(Path file) {
+        // Re-inserted so that pending files stay ordered by deadline
+        pending.remove(file);
+        pending.put(file, System.nanoTime() + debounceNanos);
+    }
+
+    private void processPendingFiles() {
+        long now = System.nanoTime();
+        var duplicates = new ArrayList<Path>();
+        var iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (entry.getValue() > now) {
+                break;
+            }
+            iterator.remove();
+            process(entry.getKey(), duplicates);
+        }
+        if (!duplicates.isEmpty() && !closed) {
+            try {
+                bin.accept(action, duplicates);
+            } catch (BinException exception) {
+                logger.severe("Could not %s duplicates. Cause: %s".formatted(action, exception.getMessage()));
+            }
+        }
+    }
+
+    private void process(Path file, List<Path> duplicates) {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            Image image = imageProvider.imageAt(file);
+            index.add(image).ifPresent(original -> {
+                logger.info(() -> "%s duplicates %s".formatted(file, original.path()));
+                duplicates.add(file);
+            });
+        } catch (ReadException exception) {
+            index.reject(file);
+            logger.fine(() -> "Ignoring %s: %s".formatted(file, exception.getMessage()));
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package net.agiledeveloper.nodup.image.watch;
+
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.Image.Dimension;
+import net.agiledeveloper.nodup.image.Image.ReadException;
+import net.agiledeveloper.nodup.image.hash.Hash;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static net.agiledeveloper.nodup.App.logger;
+
+// Images of the watched directories grouped by discriminator. Hashes are only computed once a second
+// image shares the discriminator of an indexed one, and are then kept by the images themselves.
+class LiveIndex {
+
+    private final Map<Path, Image> byPath = new HashMap<>();
+    private final Map<Discriminator, List<Image>> byDiscriminator = new HashMap<>();
+    // Files that could not be decoded, until they change
+    private final Set<Path> undecodable = new HashSet<>();
+
+
+    // Returns the indexed image the added one duplicates, if any
+    Optional<Image> add(Image image) {
+        remove(image.path());
+        var discriminator = Discriminator.of(image);
+        var original = originalOf(image, List.copyOf(byDiscriminator.getOrDefault(discriminator, List.of())));
+        byDiscriminator.computeIfAbsent(discriminator, key -> new ArrayList<>()).add(image);
+        byPath.put(image.path(), image);
+        return original;
+    }
+
+    // Candidates that cannot be decoded are evicted, so that they are not decoded again on every addition
+    private Optional<Image> originalOf(Image image, List<Image> candidates) {
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+        Hash hash = image.hash();
+        for (Image candidate : candidates) {
+            try {
+                if (candidate.hash().equals(hash)) {
+                    return Optional.of(candidate);
+                }
+            } catch (ReadException exception) {
+                logger.fine(() -> "Ignoring %s: %s".formatted(candidate.path(), exception.getMessage()));
+                reject(candidate.path());
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Forgets a file that could not be decoded, and remembers it so that rescans skip it
+    void reject(Path path) {
+        remove(path);
+        undecodable.add(path);
+    }
+
+    void remove(Path path) {
+        undecodable.remove(path);
+        var image = byPath.remove(path);
+        if (image != null) {
+            var discriminator = Discriminator.of(image);
+            var candidates = byDiscriminator.get(discriminator);
+            candidates.remove(image);
+            if (candidates.isEmpty()) {
+                byDiscriminator.remove(discriminator);
+            }
+        }
+    }
+
+    // Forgets every image below a deleted directory
+    void removeAll(Path directory) {
+        byPath.keySet().stream()
+                .filter(path -> path.startsWith(directory))
+                .toList()
+                .forEach(this::remove);
+        undecodable.removeIf(path -> path.startsWith(directory));
+    }
+
+    boolean contains(Path path) {
+        return byPath.containsKey(path) || undecodable.contains(path);
+    }
+
+    int size() {
+        return byPath.size();
+    }
+
+
+    private record Discriminator(Dimension dimension, String format, long weight) {
+
+        private static Discriminator of(Image image) {
+            return new Discriminator(image.dimension(), image.format(), image.weight());
+        }
+
+    }
+
+}
@@ -5,6 +5,9 @@ import net.agiledeveloper.nodup.bin.Bin.PathProvider;
 import net.agiledeveloper.nodup.image.Image;
 import net.agiledeveloper.nodup.image.ImageDeduplicator;
 import net.agiledeveloper.nodup.image.ImageProvider;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+import net.agiledeveloper.nodup.image.index.ImageIndex;
+import net.agiledeveloper.nodup.image.index.IndexEntry;
 import net.agiledeveloper.nodup.image.processors.BucketProcessor;
 import net.agiledeveloper.nodup.image.processors.ExifProcessor;
 import net.agiledeveloper.nodup.ui.DirectoryOpener;
@@ -14,6 +17,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 
 import java.io.*;
 import java.nio.file.Files;
@@ -142,6 +147,38 @@ class OrchestratorTest {
                     .toContain("Log level: FINE");
         }
 
+        @Test
+        void accept_scan_options() throws IOException {
+            havingDirectoryNamed("directory");
+
+            whenStartingApp()
+                    .withParameters(directoryToScan.toString(), "--recursive", "--depth=3", "--threads=2", "--workers=2", "--metadata-io=4");
+
+            expectLog()
+                    .toContain(directoryToScan.toString());
+        }
+
+        @Test
+        void index_a_directory() throws IOException {
+            havingDirectoryNamed("directory")
+                    .containing(aBigDog(), aDog(), aCat());
+            Path indexFile = tempDir.resolve("library.index");
+
+            whenStartingApp()
+                    .withParameters("index", directoryToScan.toString(), "--output=" + indexFile);
+
+            expectLog()
+                    .toContain("Indexed 3 images out of 3 files into " + indexFile);
+            assertThat(Files.exists(indexFile)).isTrue();
+        }
+
+        @Test
+        void index_requires_a_directory() {
+            assertThatExceptionOfType(IllegalArgumentException.class)
+                    .isThrownBy(() -> whenStartingApp().withParameters("index", "--output=library.index"))
+                    .withMessageContaining("Missing directory to index");
+        }
+
         @Test
         void unknown_arguments_throw() {
             assertThatExceptionOfType(IllegalArgumentException.class)
@@ -149,6 +186,27 @@ class OrchestratorTest {
                     .withMessageContaining("Unknown argument: --unknown-argument");
         }
 
+        @ParameterizedTest
+        @CsvSource({
+                "--similar=6, --resized, Options --similar and --resized cannot be combined",
+                "--lsh, --any-format, Options --lsh and --any-format cannot be combined",
+                "--resized, --any-format, Options --resized and --any-format cannot be combined",
+                "--resized, --confirm, 'Option --confirm only applies to identical pixels, not to --resized'",
+                "--similar, --confirm, 'Option --confirm only applies to identical pixels, not to --similar'"
+        })
+        void conflicting_modes_throw(String first, String second, String message) {
+            assertThatExceptionOfType(IllegalArgumentException.class)
+                    .isThrownBy(() -> whenStartingApp().withParameters(first, second))
+                    .withMessage(message);
+        }
+
+        @Test
+        void options_without_a_value_throw() {
+            assertThatExceptionOfType(IllegalArgumentException.class)
+                    .isThrownBy(() -> whenStartingApp().withParameters("ingest", "inbox", "--against"))
+                    .withMessage("Missing value of --against (e.g., --against=value)");
+        }
+
         @Test
         void unknown_directories_can_not_be_processed() throws IOException {
             havingDirectoryNamed("directory")
@@ -261,6 +319,60 @@ class OrchestratorTest {
                     .forImages(a, b);
         }
 
+        @Test
+        void inbox_images_already_in_the_library_are_moved_to_bin() throws IOException {
+            Path indexFile = havingLibraryOf(aDogImage().located(tempDir.resolve("library")).named("dog-library").build());
+            havingDirectoryToScan("inbox");
+            var dog = aDogImage().located(directoryToScan).named("dog-new").build();
+            givenThat(directoryToScan)
+                    .contains(dog, aCatImage().located(directoryToScan).build());
+
+            whenStartingApp()
+                    .withParameters("ingest", directoryToScan.toString(), "--against", indexFile.toString(), "--move");
+
+            expectLog()
+                    .toContain("Found 1 images of %s already in %s".formatted(directoryToScan, indexFile));
+            assertThatDuplicatesWereMoved(1)
+                    .forImages(dog);
+        }
+
+        @Test
+        void inbox_images_are_also_checked_against_each_other() throws IOException {
+            Path indexFile = havingLibraryOf(aBigDog());
+            havingDirectoryToScan("inbox");
+            var a = aCatImage().located(directoryToScan).named("cat-a").build();
+            var b = aCatImage().located(directoryToScan).named("cat-b").build();
+            givenThat(directoryToScan)
+                    .contains(a, b);
+
+            whenStartingApp()
+                    .withParameters("ingest", directoryToScan.toString(), "--against=" + indexFile, "--log=fine");
+
+            expectLog()
+                    .toContain("Found 0 images of %s already in %s".formatted(directoryToScan, indexFile));
+            assertThatDuplicatesWereFound(1)
+                    .forImages(a, b);
+        }
+
+        @Test
+        void ingest_requires_an_existing_index() throws IOException {
+            havingDirectoryToScan("inbox");
+            String indexFile = tempDir.resolve("missing.index").toString();
+
+            assertThatExceptionOfType(IllegalArgumentException.class)
+                    .isThrownBy(() -> whenStartingApp().withParameters("ingest", directoryToScan.toString(), "--against", indexFile))
+                    .withMessageContaining("Could not find specified index: " + indexFile);
+        }
+
+        private Path havingLibraryOf(Image... images) {
+            Path indexFile = tempDir.resolve("library.index");
+            var entries = Arrays.stream(images)
+                    .map(IndexEntry::of)
+                    .toList();
+            ImageIndex.write(indexFile, HashAlgorithm.SHA256, entries);
+            return indexFile;
+        }
+
     }
 
     @Nested
@@ -0,0 +1,39 @@
+package net.agiledeveloper.nodup.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DecodeBudgetTest {
+
+    private static final long MEBIBYTE = 1024 * 1024;
+
+
+    @Test
+    void concurrent_decodes_stay_within_budget() {
+        var budget = DecodeBudget.of(10 * MEBIBYTE);
+        var inUse = new AtomicLong();
+        var peak = new AtomicLong();
+
+        IntStream.range(0, 200).parallel().forEach(i -> budget.admit(3 * MEBIBYTE, () -> {
+            peak.accumulateAndGet(inUse.addAndGet(3 * MEBIBYTE), Math::max);
+            Thread.onSpinWait();
+            return inUse.addAndGet(-3 * MEBIBYTE);
+        }));
+
+        assertThat(peak.get()).isLessThanOrEqualTo(10 * MEBIBYTE);
+    }
+
+    @Test
+    void decodes_larger_than_the_budget_are_admitted() {
+        var budget = DecodeBudget.of(MEBIBYTE);
+
+        String result = budget.admit(100 * MEBIBYTE, () -> "decoded");
+
+        assertThat(result).isEqualTo("decoded");
+    }
+
+}
@@ -0,0 +1,51 @@
+package net.agiledeveloper.nodup.image;
+
+import net.agiledeveloper.nodup.image.hash.Hash;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashEngineTest {
+
+    @TempDir
+    private Path directory;
+
+
+    // 257x131 pixels span several digest chunks and end in a partial one
+    @ParameterizedTest
+    @ValueSource(ints = {HashEngine.FULL_DECODING, 7})
+    void bulk_digests_match_a_per_byte_digest_of_each_pixel(int bandHeight) throws IOException, NoSuchAlgorithmException {
+        var image = new BufferedImage(257, 131, BufferedImage.TYPE_INT_ARGB);
+        var random = new Random(42);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        Path file = directory.resolve("odd.png");
+        ImageIO.write(image, "png", file.toFile());
+        var engine = new HashEngine(HashEngine.DEFAULT_ALGORITHM, HashEngine.DEFAULT_SAMPLING, bandHeight);
+
+        var hash = new IOImage(file, engine).hash();
+
+        var reference = MessageDigest.getInstance("SHA-256");
+        for (int pixel : ImageIO.read(file.toFile()).getRGB(0, 0, 257, 131, null, 0, 257)) {
+            reference.update((byte) (pixel >>> 24));
+            reference.update((byte) (pixel >>> 16));
+            reference.update((byte) (pixel >>> 8));
+            reference.update((byte) pixel);
+        }
+        assertThat(hash).isEqualTo(Hash.of(reference.digest()));
+    }
+
+}
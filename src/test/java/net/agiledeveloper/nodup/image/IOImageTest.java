@@ -0,0 +1,155 @@
+package net.agiledeveloper.nodup.image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+class IOImageTest {
+
+    @TempDir
+    private Path directory;
+
+    private final HashEngine hashEngine = new HashEngine();
+
+
+    @Test
+    void identical_pixels_have_the_same_hash() throws IOException {
+        var png = new IOImage(havingImage("a.png", "png", 0xFF336699), hashEngine);
+        var bmp = new IOImage(havingImage("b.bmp", "bmp", 0xFF336699), hashEngine);
+
+        assertThat(png.hash())
+                .isNotNull()
+                .isEqualTo(bmp.hash());
+    }
+
+    @Test
+    void different_pixels_have_different_hashes() throws IOException {
+        var a = new IOImage(havingImage("a.png", "png", 0xFF336699), hashEngine);
+        var b = new IOImage(havingImage("b.png", "png", 0xFF996633), hashEngine);
+
+        assertThat(a.hash()).isNotEqualTo(b.hash());
+    }
+
+    @Test
+    void hashes_are_computed_once() throws IOException {
+        var image = new IOImage(havingImage("a.png", "png", 0xFF336699), hashEngine);
+
+        image.hash();
+        image.hash();
+
+        assertThat(hashEngine.pixelStatistics().count()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"png", "jpg", "bmp"})
+    void striped_hashes_match_full_hashes(String format) throws IOException {
+        Path file = havingGradient("gradient." + format, format);
+        var stripedEngine = new HashEngine(HashEngine.DEFAULT_ALGORITHM, HashEngine.DEFAULT_SAMPLING, 3);
+
+        var striped = new IOImage(file, stripedEngine);
+        var full = new IOImage(file, hashEngine);
+
+        assertThat(striped.hash()).isEqualTo(full.hash());
+    }
+
+    @Test
+    void identical_pixels_compare_equal_across_formats() throws IOException {
+        var png = new IOImage(havingTallImage("a.png", "png", -1), hashEngine);
+        var bmp = new IOImage(havingTallImage("b.bmp", "bmp", -1), hashEngine);
+
+        assertThat(png.hasSamePixels(bmp)).isTrue();
+        assertThat(hashEngine.pixelStatistics().count()).isZero();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 99})
+    void a_single_different_row_is_detected(int row) throws IOException {
+        var a = new IOImage(havingTallImage("a.png", "png", -1), hashEngine);
+        var b = new IOImage(havingTallImage("b.png", "png", row), hashEngine);
+
+        assertThat(a.hasSamePixels(b)).isFalse();
+    }
+
+
+    @ParameterizedTest
+    @ValueSource(strings = {"png", "jpg"})
+    void subsampled_thumbnails_are_close_to_full_thumbnails(String format) throws IOException {
+        var image = new IOImage(havingLargeGradient("large." + format, format), hashEngine);
+
+        int[] subsampled = image.thumbnail(9, 8);
+        int[] full = Thumbnails.luminance(image.pixels(), image.width(), image.height(), 9, 8);
+
+        for (int i = 0; i < full.length; i++) {
+            assertThat(subsampled[i]).isCloseTo(full[i], offset(4));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"png", "jpg", "bmp"})
+    void subsampled_pixels_are_samples_of_full_pixels(String format) throws IOException {
+        var image = new IOImage(havingLargeGradient("large." + format, format), hashEngine);
+
+        int[] subsampled = image.pixelSample(32, 24);
+        int[] full = Thumbnails.sample(image.pixels(), image.width(), image.height(), 32, 24);
+
+        assertThat(subsampled).containsExactly(full);
+    }
+
+    private Path havingLargeGradient(String name, String format) throws IOException {
+        var image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 255 / 640) << 16 | (y * 255 / 480) << 8 | (x + y) * 255 / 1120);
+            }
+        }
+        Path file = directory.resolve(name);
+        ImageIO.write(image, format, file.toFile());
+        return file;
+    }
+
+    private Path havingTallImage(String name, String format, int changedRow) throws IOException {
+        var image = new BufferedImage(9, 100, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, y == changedRow ? 0xFF000000 : (y * 2) << 8 | x * 20);
+            }
+        }
+        Path file = directory.resolve(name);
+        ImageIO.write(image, format, file.toFile());
+        return file;
+    }
+
+    private Path havingGradient(String name, String format) throws IOException {
+        var image = new BufferedImage(17, 23, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 15) << 16 | (y * 11) << 8 | (x * y) & 0xFF);
+            }
+        }
+        Path file = directory.resolve(name);
+        ImageIO.write(image, format, file.toFile());
+        return file;
+    }
+
+    private Path havingImage(String name, String format, int rgb) throws IOException {
+        var image = new BufferedImage(8, 4, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, x == y ? rgb : 0xFFFFFFFF);
+            }
+        }
+        Path file = directory.resolve(name);
+        ImageIO.write(image, format, file.toFile());
+        return file;
+    }
+
+}
@@ -0,0 +1,71 @@
+package net.agiledeveloper.nodup.image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.util.Arrays.stream;
+import static net.agiledeveloper.nodup.image.RecursiveImageProvider.UNLIMITED_DEPTH;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+class RecursiveImageProviderTest {
+
+    @TempDir
+    private Path directory;
+
+
+    @Test
+    void only_list_top_level_files_by_default() throws IOException {
+        havingFiles("a.jpg", "2024/b.jpg", "2024/06/c.jpg");
+
+        var images = new RecursiveImageProvider(1, 2).imagesAt(directory);
+
+        assertThat(namesOf(images)).containsExactly("a.jpg");
+    }
+
+    @Test
+    void list_files_up_to_the_specified_depth() throws IOException {
+        havingFiles("a.jpg", "2024/b.jpg", "2024/06/c.jpg");
+
+        var images = new RecursiveImageProvider(2, 2).imagesAt(directory);
+
+        assertThat(namesOf(images)).containsExactlyInAnyOrder("a.jpg", "b.jpg");
+    }
+
+    @Test
+    void list_all_nested_files_when_depth_is_unlimited() throws IOException {
+        havingFiles("a.jpg", "2023/b.jpg", "2024/06/c.jpg", "2024/07/party/d.jpg");
+
+        var images = new RecursiveImageProvider(UNLIMITED_DEPTH, 4).imagesAt(directory);
+
+        assertThat(namesOf(images)).containsExactlyInAnyOrder("a.jpg", "b.jpg", "c.jpg", "d.jpg");
+    }
+
+    @Test
+    void stream_nested_files() throws IOException {
+        havingFiles("a.jpg", "2023/b.jpg", "2024/06/c.jpg");
+
+        try (var images = new RecursiveImageProvider(UNLIMITED_DEPTH, 2).stream(directory)) {
+            assertThat(images.map(Image::toString)).containsExactlyInAnyOrder("a.jpg", "b.jpg", "c.jpg");
+        }
+    }
+
+
+    private void havingFiles(String... paths) throws IOException {
+        for (String path : paths) {
+            Path file = directory.resolve(path);
+            Files.createDirectories(file.getParent());
+            Files.createFile(file);
+        }
+    }
+
+    private static String[] namesOf(Image[] images) {
+        return stream(images)
+                .map(Image::toString)
+                .toArray(String[]::new);
+    }
+
+}
@@ -0,0 +1,136 @@
+package net.agiledeveloper.nodup.image.cache;
+
+import net.agiledeveloper.nodup.image.HashEngine;
+import net.agiledeveloper.nodup.image.IOImage;
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.hash.Hash;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static net.agiledeveloper.stubs.TinyImages.havingTinyImage;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class ImageCacheTest {
+
+    @TempDir
+    private Path directory;
+
+    @TempDir
+    private Path cacheDirectory;
+
+
+    @Test
+    void serve_unchanged_files_from_a_previous_run() throws IOException {
+        Path file = havingImage("a.png", 0xFF336699);
+        var hash = scan(file, new HashEngine());
+
+        var hashEngine = new HashEngine();
+        try (var cache = ImageCache.open(cacheDirectory, hashEngine)) {
+            var image = cache.wrap(new IOImage(file, hashEngine));
+
+            assertThat(image.hash()).isEqualTo(hash);
+            assertThat(image.dimension()).isEqualTo(new Image.Dimension(4, 4));
+            assertThat(image.sampleHash()).isPresent();
+        }
+        assertThat(hashEngine.pixelStatistics().count()).isZero();
+        assertThat(hashEngine.sampleStatistics().count()).isZero();
+    }
+
+    @Test
+    void compare_unchanged_files_through_their_cached_hashes() throws IOException {
+        Path a = havingImage("a.png", 0xFF336699);
+        Path b = havingImage("b.png", 0xFF336699);
+        scan(a, new HashEngine());
+        scan(b, new HashEngine());
+
+        var hashEngine = new HashEngine();
+        try (var cache = ImageCache.open(cacheDirectory, hashEngine)) {
+            var image = cache.wrap(new IOImage(a, hashEngine));
+
+            assertThat(image.hasSamePixels(cache.wrap(new IOImage(b, hashEngine)))).isTrue();
+        }
+        assertThat(hashEngine.pixelStatistics().count()).isZero();
+        assertThat(hashEngine.comparisonStatistics().count()).isZero();
+    }
+
+    @Test
+    void recompute_modified_files() throws IOException {
+        Path file = havingImage("a.png", 0xFF336699);
+        var hash = scan(file, new HashEngine());
+        havingImage("a.png", 0xFF996633);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(60)));
+
+        var hashEngine = new HashEngine();
+        try (var cache = ImageCache.open(cacheDirectory, hashEngine)) {
+            assertThat(cache.wrap(new IOImage(file, hashEngine)).hash()).isNotEqualTo(hash);
+        }
+        assertThat(hashEngine.pixelStatistics().count()).isEqualTo(1);
+    }
+
+    @Test
+    void remember_files_that_are_not_images() throws IOException {
+        Path file = Files.writeString(directory.resolve("notes.txt"), "not an image");
+        try (var cache = ImageCache.open(cacheDirectory, new HashEngine())) {
+            var image = cache.wrap(new IOImage(file));
+            assertThatExceptionOfType(Image.ReadException.class).isThrownBy(image::dimension);
+        }
+
+        try (var cache = ImageCache.open(cacheDirectory, new HashEngine())) {
+            var image = cache.wrap(new IOImage(file));
+            assertThatExceptionOfType(Image.ReadException.class)
+                    .isThrownBy(image::dimension)
+                    .withMessageStartingWith("Not an image");
+        }
+    }
+
+    @Test
+    void do_not_remember_files_that_could_not_be_read() throws IOException {
+        Path file = havingImage("a.png", 0xFF336699);
+        try (var cache = ImageCache.open(cacheDirectory, new HashEngine())) {
+            var image = cache.wrap(new IOImage(file) {
+                @Override
+                public Dimension dimension() {
+                    throw new Image.ReadException(new IOException("Locked"));
+                }
+            });
+            assertThatExceptionOfType(Image.ReadException.class).isThrownBy(image::dimension);
+        }
+
+        try (var cache = ImageCache.open(cacheDirectory, new HashEngine())) {
+            assertThat(cache.wrap(new IOImage(file)).dimension()).isEqualTo(new Image.Dimension(4, 4));
+        }
+    }
+
+    @Test
+    void ignore_unreadable_caches() throws IOException {
+        Path file = havingImage("a.png", 0xFF336699);
+        Files.writeString(cacheDirectory.resolve("images-sha256.cache"), "garbage");
+
+        try (var cache = ImageCache.open(cacheDirectory, new HashEngine())) {
+            assertThat(cache.wrap(new IOImage(file)).hash()).isNotNull();
+            assertThat(cache.size()).isEqualTo(1);
+        }
+    }
+
+
+    private Hash scan(Path file, HashEngine hashEngine) {
+        try (var cache = ImageCache.open(cacheDirectory, hashEngine)) {
+            var image = cache.wrap(new IOImage(file, hashEngine));
+            image.dimension();
+            image.sampleHash();
+            return image.hash();
+        }
+    }
+
+    private Path havingImage(String name, int rgb) throws IOException {
+        return havingTinyImage(directory, name, "png", rgb);
+    }
+
+}
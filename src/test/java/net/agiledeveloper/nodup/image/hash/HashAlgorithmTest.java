@@ -0,0 +1,68 @@
+package net.agiledeveloper.nodup.image.hash;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.HexFormat;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class HashAlgorithmTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "xxh64, '', ef46db3751d8e999",
+            "xxh64, a, d24ec4f1a98c6e5b",
+            "xxh64, abc, 44bc2cf5ad770999",
+            "murmur3_128, '', 00000000000000000000000000000000",
+            "murmur3_128, hello, 029bbd41b3a7d8cb191dae486a901e5b",
+            "murmur3_128, The quick brown fox jumps over the lazy dog, 6c1b07bc7bbc4be347939ac4a93c437a",
+            "sha256, abc, ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad"
+    })
+    void match_reference_vectors(String algorithm, String input, String expected) {
+        var hasher = HashAlgorithm.named(algorithm).newHasher();
+
+        byte[] digest = hasher.digest(input.getBytes(UTF_8));
+
+        assertThat(HexFormat.of().formatHex(digest)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @EnumSource(HashAlgorithm.class)
+    void chunked_updates_match_a_single_update(HashAlgorithm algorithm) {
+        var bytes = new byte[1000];
+        new Random(42).nextBytes(bytes);
+        byte[] expected = algorithm.newHasher().digest(bytes);
+
+        var hasher = algorithm.newHasher();
+        for (int offset = 0, chunk = 1; offset < bytes.length; offset += chunk, chunk += 7) {
+            hasher.update(bytes, offset, Math.min(chunk, bytes.length - offset));
+        }
+
+        assertThat(hasher.digest()).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @EnumSource(HashAlgorithm.class)
+    void hashers_are_reusable(HashAlgorithm algorithm) {
+        var hasher = algorithm.newHasher();
+        byte[] first = hasher.digest("first".getBytes(UTF_8));
+
+        hasher.digest("second".getBytes(UTF_8));
+
+        assertThat(hasher.digest("first".getBytes(UTF_8))).isEqualTo(first);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"md5", "crc32"})
+    void unknown_algorithms_are_rejected(String name) {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> HashAlgorithm.named(name))
+                .withMessageContaining("Unknown hash algorithm: " + name);
+    }
+
+}
@@ -0,0 +1,41 @@
+package net.agiledeveloper.nodup.image.hash;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class HashTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "ef46db3751d8e999",
+            "029bbd41b3a7d8cb191dae486a901e5b",
+            "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad"
+    })
+    void print_as_hexadecimal(String hexadecimal) {
+        var hash = Hash.of(HexFormat.of().parseHex(hexadecimal));
+
+        assertThat(hash).hasToString(hexadecimal);
+        assertThat(hash.bytes()).isEqualTo(HexFormat.of().parseHex(hexadecimal));
+        assertThat(Hash.ofHexadecimal(hexadecimal)).isEqualTo(hash);
+    }
+
+    @Test
+    void digests_of_different_lengths_differ() {
+        var shorter = Hash.ofHexadecimal("ef46db3751d8e999");
+        var padded = Hash.ofHexadecimal("ef46db3751d8e9990000000000000000");
+
+        assertThat(shorter).isNotEqualTo(padded);
+    }
+
+    @Test
+    void reject_unsupported_lengths() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Hash.of(new byte[20]));
+    }
+
+}
@@ -0,0 +1,98 @@
+package net.agiledeveloper.nodup.image.header;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageHeadersTest {
+
+    @TempDir
+    private Path directory;
+
+
+    @ParameterizedTest
+    @ValueSource(strings = {"png", "jpg", "gif", "bmp"})
+    void agree_with_imageio(String format) throws IOException {
+        Path file = directory.resolve("image." + format);
+        ImageIO.write(new BufferedImage(37, 23, BufferedImage.TYPE_INT_RGB), format, file.toFile());
+
+        assertThat(ImageHeaders.read(file)).contains(imageIOHeaderOf(file));
+    }
+
+    @Test
+    void read_lossy_webp() throws IOException {
+        Path file = havingFile("RIFF00000000WEBPVP8 00000000" + "000000" + "9d012a" + "2500" + "1700");
+
+        assertThat(ImageHeaders.read(file)).contains(new ImageHeader("webp", 37, 23));
+    }
+
+    @Test
+    void read_lossless_webp() throws IOException {
+        // 14 bits of width - 1, then 14 bits of height - 1, little-endian
+        int bits = 36 | 22 << 14;
+        Path file = havingFile("RIFF00000000WEBPVP8L00000000" + "2f" + "%02x%02x%02x%02x".formatted(bits & 0xFF, bits >> 8 & 0xFF, bits >> 16 & 0xFF, bits >>> 24));
+
+        assertThat(ImageHeaders.read(file)).contains(new ImageHeader("webp", 37, 23));
+    }
+
+    @Test
+    void read_extended_webp() throws IOException {
+        Path file = havingFile("RIFF00000000WEBPVP8X00000000" + "00000000" + "240000" + "160000");
+
+        assertThat(ImageHeaders.read(file)).contains(new ImageHeader("webp", 37, 23));
+    }
+
+    @Test
+    void leave_unknown_formats_to_imageio() throws IOException {
+        Path file = directory.resolve("image.tif");
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "tif", file.toFile());
+
+        assertThat(ImageHeaders.read(file)).isEmpty();
+    }
+
+    @Test
+    void leave_truncated_headers_to_imageio() throws IOException {
+        Path file = directory.resolve("truncated.png");
+        Files.write(file, HexFormat.of().parseHex("89504e470d0a1a0a"));
+
+        assertThat(ImageHeaders.read(file)).isEmpty();
+    }
+
+
+    // RIFF tags are written as ASCII, the rest as hexadecimal bytes
+    private Path havingFile(String header) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        bytes.writeBytes(header.substring(0, 4).getBytes());
+        bytes.writeBytes(HexFormat.of().parseHex(header.substring(4, 12)));
+        bytes.writeBytes(header.substring(12, 20).getBytes());
+        bytes.writeBytes(HexFormat.of().parseHex(header.substring(20)));
+        Path file = directory.resolve("image.webp");
+        Files.write(file, bytes.toByteArray());
+        return file;
+    }
+
+    private static ImageHeader imageIOHeaderOf(Path file) throws IOException {
+        try (var in = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            reader.setInput(in);
+            try {
+                return new ImageHeader(reader.getFormatName(), reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+}
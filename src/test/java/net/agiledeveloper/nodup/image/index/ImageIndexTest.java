@@ -0,0 +1,118 @@
+package net.agiledeveloper.nodup.image.index;
+
+import net.agiledeveloper.nodup.image.Image.Dimension;
+import net.agiledeveloper.nodup.image.hash.Hash;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+import net.agiledeveloper.nodup.image.index.ImageIndex.IndexException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class ImageIndexTest {
+
+    private static final Dimension FULL_HD = new Dimension(1920, 1080);
+
+    @TempDir
+    private Path directory;
+
+
+    @Test
+    void look_up_entries_by_discriminator() {
+        var a = entry("a.jpg", FULL_HD, "JPEG", 1000, 1);
+        var b = entry("b.jpg", FULL_HD, "JPEG", 1000, 2);
+        var c = entry("c.png", FULL_HD, "png", 1000, 3);
+        var d = entry("d.jpg", new Dimension(1080, 1920), "JPEG", 1000, 4);
+
+        try (var index = written(List.of(d, c, b, a))) {
+            assertThat(index.size()).isEqualTo(4);
+            assertThat(index.algorithm()).isEqualTo(HashAlgorithm.XXH64);
+            assertThat(index.lookup(FULL_HD, "JPEG", 1000)).containsExactly(a, b);
+            assertThat(index.lookup(FULL_HD, "png", 1000)).containsExactly(c);
+            assertThat(index.lookup(FULL_HD, "JPEG", 999)).isEmpty();
+            assertThat(index.lookup(FULL_HD, "gif", 1000)).isEmpty();
+        }
+    }
+
+    @Test
+    void look_up_entries_by_hash() {
+        var a = entry("a.jpg", FULL_HD, "JPEG", 1000, 7);
+        var b = entry("photos/2024/b.jpg", new Dimension(640, 480), "JPEG", 200, 7);
+        var c = entry("c.png", FULL_HD, "png", 1000, -1);
+
+        try (var index = written(List.of(a, b, c))) {
+            assertThat(index.lookup(hash(7))).containsExactlyInAnyOrder(a, b);
+            assertThat(index.lookup(hash(-1))).containsExactly(c);
+            assertThat(index.contains(hash(8))).isFalse();
+        }
+    }
+
+    @Test
+    void look_up_many_entries() {
+        var entries = new ArrayList<IndexEntry>();
+        for (int i = 0; i < 10_000; i++) {
+            entries.add(entry("image-" + i + ".jpg", new Dimension(100 + i % 7, 100), "JPEG", i % 13, i * 31L));
+        }
+
+        try (var index = written(entries)) {
+            for (int i = 0; i < 10_000; i += 97) {
+                assertThat(index.lookup(hash(i * 31L))).containsExactly(entries.get(i));
+            }
+            assertThat(index.lookup(new Dimension(103, 100), "JPEG", 5))
+                    .isNotEmpty()
+                    .allMatch(entry -> entry.weight() == 5 && entry.dimension().width() == 103);
+        }
+    }
+
+    @Test
+    void an_empty_index_has_no_entries() {
+        try (var index = written(List.of())) {
+            assertThat(index.size()).isZero();
+            assertThat(index.lookup(hash(1))).isEmpty();
+        }
+    }
+
+    @Test
+    void reject_files_that_are_not_indexes() throws IOException {
+        Path file = Files.writeString(directory.resolve("notes.txt"), "not an index");
+
+        assertThatExceptionOfType(IndexException.class)
+                .isThrownBy(() -> ImageIndex.open(file))
+                .withMessageStartingWith("Not an index file");
+    }
+
+    @Test
+    void reject_corrupted_indexes() throws IOException {
+        Path file = directory.resolve("library.index");
+        ImageIndex.write(file, HashAlgorithm.XXH64, List.of(entry("a.jpg", FULL_HD, "JPEG", 1000, 1)));
+        Files.write(file, Files.readAllBytes(file), APPEND);
+
+        assertThatExceptionOfType(IndexException.class)
+                .isThrownBy(() -> ImageIndex.open(file))
+                .withMessageStartingWith("Corrupted index file");
+    }
+
+
+    private ImageIndex written(List<IndexEntry> entries) {
+        Path file = directory.resolve("library.index");
+        ImageIndex.write(file, HashAlgorithm.XXH64, entries);
+        return ImageIndex.open(file);
+    }
+
+    private IndexEntry entry(String path, Dimension dimension, String format, long weight, long hash) {
+        return new IndexEntry(directory.resolve(path), dimension, format, weight, hash(hash));
+    }
+
+    private static Hash hash(long value) {
+        return Hash.ofHexadecimal("%016x".formatted(value));
+    }
+
+}
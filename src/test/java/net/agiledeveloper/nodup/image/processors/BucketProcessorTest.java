@@ -1,10 +1,181 @@
 package net.agiledeveloper.nodup.image.processors;
 
+import net.agiledeveloper.nodup.image.HashEngine;
+import net.agiledeveloper.nodup.image.IOImage;
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.hash.Hash;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static net.agiledeveloper.stubs.StubImage.ImageBuilder.aCat;
+import static net.agiledeveloper.stubs.TinyImages.havingTinyImage;
+import static org.assertj.core.api.Assertions.assertThat;
+
 public class BucketProcessorTest extends ImageProcessorTest {
 
+    @TempDir
+    private Path directory;
+
+    private final HashEngine hashEngine = new HashEngine();
+
+
     public BucketProcessorTest() {
         super(new BucketProcessor());
     }
 
-}
 
+    @Test
+    void byte_identical_files_collide_without_being_decoded() throws IOException {
+        Image original = havingImage("original.png", "png");
+        Image copy = havingCopy(original, "copy.png");
+
+        var collisions = processor.detectCollisions(original, copy);
+
+        assertThat(collisions).hasSize(1);
+        assertThat(collisions.iterator().next().contains(original, copy)).isTrue();
+        assertThat(hashEngine.pixelStatistics().count()).isZero();
+    }
+
+    @Test
+    void only_one_copy_of_identical_files_is_decoded() throws IOException {
+        Image png = havingImage("original.png", "png");
+        Image copy = havingCopy(png, "copy.png");
+        Image bmp = havingImage("original.bmp", "bmp");
+
+        var collisions = processor.detectCollisions(png, copy, bmp);
+
+        assertThat(collisions).hasSize(1);
+        assertThat(collisions.iterator().next().duplicates()).containsExactly(copy, bmp);
+        assertThat(hashEngine.comparisonStatistics().count()).isEqualTo(1);
+        assertThat(hashEngine.pixelStatistics().count()).isZero();
+    }
+
+    @Test
+    void more_than_two_distinct_files_are_hashed() throws IOException {
+        Image png = havingImage("original.png", "png");
+        Image bmp = havingImage("original.bmp", "bmp");
+        Image other = havingImage("other.png", "png", 0xFF996633);
+
+        var collisions = processor.detectCollisions(png, bmp, other);
+
+        assertThat(collisions).singleElement().satisfies(collision -> assertThat(collision.contains(png, bmp)).isTrue());
+        assertThat(hashEngine.pixelStatistics().count()).isEqualTo(3);
+        assertThat(hashEngine.comparisonStatistics().count()).isZero();
+    }
+
+    @Test
+    void only_colliding_images_are_confirmed() throws IOException {
+        Image png = havingImage("a.png", "png");
+        Image bmp = havingImage("b.bmp", "bmp", 0xFF996633);
+        Image other = havingImage("c.png", "png", 0xFF663399);
+
+        var collisions = new BucketProcessor(HashAlgorithm.MURMUR3_128).detectCollisions(List.of(png, bmp, other));
+
+        assertThat(collisions).isEmpty();
+        assertThat(hashEngine.pixelStatistics().count()).isEqualTo(3);
+    }
+
+    @Test
+    void images_that_cannot_be_decoded_for_confirmation_are_left_out() {
+        Image cat = aCat();
+        Image copy = aCat();
+        Image undecodable = undecodableBy(HashAlgorithm.MURMUR3_128, aCat());
+
+        var collisions = new BucketProcessor(HashAlgorithm.MURMUR3_128).detectCollisions(List.of(cat, copy, undecodable));
+
+        assertThat(collisions).singleElement().satisfies(collision -> {
+            assertThat(collision.original()).isSameAs(cat);
+            assertThat(collision.duplicates()).containsExactly(copy);
+        });
+    }
+
+    @Test
+    void files_with_different_samples_are_not_fully_read() throws IOException {
+        Image a = havingImage("a.png", "png");
+        Image b = havingImage("b.png", "png", 0xFF996633);
+
+        var collisions = processor.detectCollisions(a, b);
+
+        assertThat(collisions).isEmpty();
+        assertThat(hashEngine.sampleStatistics().count()).isEqualTo(2);
+        assertThat(hashEngine.contentStatistics().count()).isZero();
+    }
+
+    @Test
+    void large_buckets_keep_the_input_order() {
+        var images = IntStream.range(0, 100)
+                .mapToObj(i -> aCat())
+                .toList();
+
+        var collisions = processor.detectCollisions(images);
+
+        assertThat(collisions).singleElement().satisfies(collision -> {
+            assertThat(collision.original()).isSameAs(images.get(0));
+            assertThat(collision.duplicates()).containsExactlyElementsOf(images.subList(1, images.size()));
+        });
+    }
+
+
+    private Image havingImage(String name, String format) throws IOException {
+        return havingImage(name, format, 0xFF336699);
+    }
+
+    private Image havingImage(String name, String format, int rgb) throws IOException {
+        return new IOImage(havingTinyImage(directory, name, format, rgb), hashEngine);
+    }
+
+    private static Image undecodableBy(HashAlgorithm algorithm, Image image) {
+        return new Image() {
+            @Override
+            public Path path() {
+                return image.path();
+            }
+
+            @Override
+            public String format() {
+                return image.format();
+            }
+
+            @Override
+            public long weight() {
+                return image.weight();
+            }
+
+            @Override
+            public int width() {
+                return image.width();
+            }
+
+            @Override
+            public int height() {
+                return image.height();
+            }
+
+            @Override
+            public int[] pixels() throws IOException {
+                return image.pixels();
+            }
+
+            @Override
+            public Hash hash(HashAlgorithm other) {
+                if (other == algorithm) {
+                    throw new ReadException("Unsupported compression");
+                }
+                return image.hash(other);
+            }
+        };
+    }
+
+    private Image havingCopy(Image image, String name) throws IOException {
+        Path copy = Files.copy(image.path(), directory.resolve(name));
+        return new IOImage(copy, hashEngine);
+    }
+
+}
@@ -0,0 +1,47 @@
+package net.agiledeveloper.nodup.image.processors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class BucketSchedulerTest {
+
+    @Test
+    void start_with_the_most_expensive_buckets() {
+        var started = new ConcurrentLinkedQueue<Long>();
+
+        new BucketScheduler(1).run(List.of(3L, 40L, 1L, 200L), cost -> cost, cost -> {
+            started.add(cost);
+            return List.of();
+        });
+
+        assertThat(started).containsExactly(200L, 40L, 3L, 1L);
+    }
+
+    @Test
+    void process_every_bucket_once() {
+        var started = new ConcurrentLinkedQueue<Long>();
+        var buckets = List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+
+        new BucketScheduler(4).run(buckets, cost -> cost, cost -> {
+            started.add(cost);
+            return List.of();
+        });
+
+        assertThat(started).containsExactlyInAnyOrderElementsOf(buckets);
+    }
+
+    @Test
+    void propagate_failures() {
+        var scheduler = new BucketScheduler(2);
+
+        assertThatIllegalStateException().isThrownBy(() -> scheduler.run(List.of(1L, 2L), cost -> cost, cost -> {
+            throw new IllegalStateException("Bucket " + cost);
+        }));
+    }
+
+}
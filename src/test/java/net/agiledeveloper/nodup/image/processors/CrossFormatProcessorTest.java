@@ -0,0 +1,71 @@
+package net.agiledeveloper.nodup.image.processors;
+
+import net.agiledeveloper.nodup.image.IOImage;
+import net.agiledeveloper.nodup.image.Image;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CrossFormatProcessorTest extends ImageProcessorTest {
+
+    @TempDir
+    private Path directory;
+
+
+    public CrossFormatProcessorTest() {
+        super(new CrossFormatProcessor());
+    }
+
+
+    @Test
+    void identical_pixels_collide_across_formats() throws IOException {
+        Image png = havingImage("a.png", "png", -1);
+        Image bmp = havingImage("b.bmp", "bmp", -1);
+        Image gif = havingImage("c.gif", "gif", -1);
+
+        var collisions = processor.detectCollisions(png, bmp, gif);
+
+        assertThat(collisions).hasSize(1);
+        assertThat(collisions.iterator().next().contains(png, bmp, gif)).isTrue();
+    }
+
+    @Test
+    void originals_are_chosen_by_path() throws IOException {
+        Image png = havingImage("a.png", "png", -1);
+        Image bmp = havingImage("b.bmp", "bmp", -1);
+
+        var collisions = processor.detectCollisions(bmp, png);
+
+        assertThat(collisions).singleElement()
+                .satisfies(collision -> assertThat(collision.original()).isEqualTo(png));
+    }
+
+    @Test
+    void pixels_between_samples_are_still_compared() throws IOException {
+        Image png = havingImage("a.png", "png", -1);
+        Image bmp = havingImage("b.bmp", "bmp", 2);
+
+        assertThat(processor.detectCollisions(png, bmp)).isEmpty();
+    }
+
+
+    // 100x100 pixels are sampled every third pixel from (1, 1), so that a changed pixel at (2, 2) is not sampled
+    private Image havingImage(String name, String format, int changedPixel) throws IOException {
+        var image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, x == changedPixel && y == changedPixel ? 0xFFFFFF : (x % 4) * 0x40);
+            }
+        }
+        Path file = directory.resolve(name);
+        ImageIO.write(image, format, file.toFile());
+        return new IOImage(file);
+    }
+
+}
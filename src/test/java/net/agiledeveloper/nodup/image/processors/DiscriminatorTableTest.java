@@ -0,0 +1,52 @@
+package net.agiledeveloper.nodup.image.processors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiscriminatorTableTest {
+
+    private final DiscriminatorTable<String> table = new DiscriminatorTable<>();
+
+
+    @Test
+    void group_members_with_the_same_key() {
+        table.add(4000, 3000, 0, 2048, "a");
+        table.add(4000, 3000, 0, 2048, "b");
+
+        assertThat(buckets()).containsExactly(List.of("a", "b"));
+    }
+
+    @Test
+    void separate_members_differing_by_any_field() {
+        table.add(4000, 3000, 0, 2048, "a");
+        table.add(3000, 4000, 0, 2048, "b");
+        table.add(4000, 3001, 0, 2048, "c");
+        table.add(4000, 3000, 1, 2048, "d");
+        table.add(4000, 3000, 0, 2049, "e");
+
+        assertThat(table.size()).isEqualTo(5);
+    }
+
+    @Test
+    void keep_members_when_growing() {
+        for (int i = 0; i < 10_000; i++) {
+            table.add(i % 100, 1, 0, i, "first " + i);
+            table.add(i % 100, 1, 0, i, "second " + i);
+        }
+
+        assertThat(table.size()).isEqualTo(10_000);
+        assertThat(buckets()).allSatisfy(bucket -> assertThat(bucket).hasSize(2));
+    }
+
+
+    private List<List<String>> buckets() {
+        var buckets = new ArrayList<List<String>>();
+        table.forEach((width, height, format, weight, bucket) -> buckets.add(bucket));
+        return buckets;
+    }
+
+}
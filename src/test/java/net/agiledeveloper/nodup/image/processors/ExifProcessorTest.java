@@ -2,9 +2,12 @@ package net.agiledeveloper.nodup.image.processors;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.stream.IntStream;
 
 import static net.agiledeveloper.stubs.StubImage.ImageBuilder.aBigDogImage;
+import static net.agiledeveloper.stubs.StubImage.ImageBuilder.aCatImage;
 import static net.agiledeveloper.stubs.StubImage.ImageBuilder.aDogImage;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 
@@ -44,5 +47,17 @@ class ExifProcessorTest extends ImageProcessorTest {
 
         assertThat(collisions).isEmpty();
     }
-}
 
+    @Test
+    void originals_are_chosen_by_path_regardless_of_the_input_order() {
+        var images = IntStream.range(0, 200)
+                .mapToObj(i -> aCatImage().located(Path.of("%03d.jpg".formatted(199 - i))).build())
+                .toList();
+
+        Collection<ImageProcessor.Collision> collisions = new ExifProcessor(null, 8).detectCollisions(images.stream());
+
+        assertThat(collisions).singleElement()
+                .satisfies(collision -> assertThat(collision.original()).isSameAs(images.get(199)));
+    }
+
+}
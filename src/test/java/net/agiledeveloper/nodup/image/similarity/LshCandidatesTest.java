@@ -0,0 +1,66 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.agiledeveloper.nodup.image.similarity.MultiIndexHashingTest.pairs;
+import static net.agiledeveloper.nodup.image.similarity.MultiIndexHashingTest.withNearDuplicates;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.data.Offset.offset;
+
+class LshCandidatesTest {
+
+    private static final int SIZE = 20_000;
+
+
+    @Test
+    void default_bands_find_almost_every_close_pair() {
+        long[] fingerprints = withNearDuplicates(SIZE, 6, 42);
+        var lsh = new LshCandidates();
+
+        double recall = recall(lsh, fingerprints, 6);
+
+        assertThat(recall).isGreaterThan(0.99);
+        assertThat(candidates(lsh, fingerprints, 6)).isLessThan((long) SIZE * SIZE / 2 / 100);
+    }
+
+    @Test
+    void measured_recall_matches_the_expected_recall() {
+        long[] fingerprints = withNearDuplicates(SIZE, 10, 7);
+        var lsh = new LshCandidates(4, 16);
+
+        var exact = pairs(new PairwiseCandidates(), fingerprints, 10);
+        double expected = exact.stream()
+                .mapToDouble(pair -> lsh.recallAt(DHash.distance(fingerprints[(int) (pair >>> 32)], fingerprints[pair.intValue()])))
+                .average()
+                .orElseThrow();
+
+        assertThat(recall(lsh, fingerprints, 10)).isCloseTo(expected, offset(0.05));
+    }
+
+    @Test
+    void parse_bands_and_rows() {
+        assertThat(LshCandidates.parse("64x12").name()).isEqualTo("locality-sensitive hashing 64x12");
+        assertThatIllegalArgumentException().isThrownBy(() -> LshCandidates.parse("64"));
+        assertThatIllegalArgumentException().isThrownBy(() -> LshCandidates.parse("8x33"));
+    }
+
+
+    private static double recall(CandidateGenerator generator, long[] fingerprints, int threshold) {
+        Set<Long> exact = pairs(new PairwiseCandidates(), fingerprints, threshold);
+        Set<Long> found = new HashSet<>(pairs(generator, fingerprints, threshold));
+        found.retainAll(exact);
+        return (double) found.size() / exact.size();
+    }
+
+    private static long candidates(CandidateGenerator generator, long[] fingerprints, int threshold) {
+        var count = new AtomicLong();
+        generator.forEachCandidate(fingerprints, threshold, (a, b) -> count.incrementAndGet());
+        return count.get();
+    }
+
+}
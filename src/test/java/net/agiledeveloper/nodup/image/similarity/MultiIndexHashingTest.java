@@ -0,0 +1,64 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MultiIndexHashingTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 3, 6, 10})
+    void find_the_same_pairs_as_pairwise_comparison(int threshold) {
+        long[] fingerprints = withNearDuplicates(20_000, threshold, 42);
+        assertThat(MultiIndexHashing.chunkCount(fingerprints.length, threshold)).isPositive();
+
+        var expected = pairs(new PairwiseCandidates(), fingerprints, threshold);
+        var actual = pairs(new MultiIndexHashing(), fingerprints, threshold);
+
+        assertThat(expected).isNotEmpty();
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    void compare_every_pair_of_a_few_fingerprints() {
+        assertThat(MultiIndexHashing.chunkCount(100, 10)).isZero();
+    }
+
+
+    // Random fingerprints, one in ten followed by a copy with up to threshold bits flipped
+    static long[] withNearDuplicates(int size, int threshold, long seed) {
+        var random = new Random(seed);
+        var fingerprints = new long[size];
+        for (int i = 0; i < size; i++) {
+            if (i % 10 == 1) {
+                long copy = fingerprints[i - 1];
+                int flips = random.nextInt(threshold + 1);
+                for (int flip = 0; flip < flips; flip++) {
+                    copy ^= 1L << random.nextInt(Long.SIZE);
+                }
+                fingerprints[i] = copy;
+            } else {
+                fingerprints[i] = random.nextLong();
+            }
+        }
+        return fingerprints;
+    }
+
+    // Pairs within the threshold, as reported by a generator
+    static Set<Long> pairs(CandidateGenerator generator, long[] fingerprints, int threshold) {
+        var pairs = new HashSet<Long>();
+        generator.forEachCandidate(fingerprints, threshold, (a, b) -> {
+            if (DHash.distance(fingerprints[a], fingerprints[b]) <= threshold) {
+                pairs.add((long) Math.min(a, b) << 32 | Math.max(a, b));
+            }
+        });
+        return pairs;
+    }
+
+}
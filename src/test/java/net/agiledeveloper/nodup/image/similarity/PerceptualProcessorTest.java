@@ -0,0 +1,129 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+import net.agiledeveloper.nodup.image.IOImage;
+import net.agiledeveloper.nodup.image.Image;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static net.agiledeveloper.nodup.image.similarity.Photos.havingPhoto;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class PerceptualProcessorTest {
+
+    @TempDir
+    private Path directory;
+
+
+    @Test
+    void recompressed_and_rescaled_copies_are_similar() throws IOException {
+        var original = havingPhoto(directory, "original.png", "png", 1, 320, 240);
+        var recompressed = havingPhoto(directory, "recompressed.jpg", "jpg", 1, 320, 240);
+        var rescaled = havingPhoto(directory, "rescaled.png", "png", 1, 160, 120);
+        var other = havingPhoto(directory, "other.png", "png", 2, 320, 240);
+
+        var collisions = new PerceptualProcessor().detectCollisions(rescaled, other, recompressed, original);
+
+        assertThat(collisions).hasSize(1);
+        var collision = collisions.iterator().next();
+        assertThat(collision.original()).isEqualTo(original);
+        assertThat(collision.duplicates()).containsExactlyInAnyOrder(recompressed, rescaled);
+    }
+
+    @Test
+    void different_photos_are_not_similar() throws IOException {
+        var a = havingPhoto(directory, "a.png", "png", 1, 320, 240);
+        var b = havingPhoto(directory, "b.png", "png", 2, 320, 240);
+        var c = havingPhoto(directory, "c.png", "png", 3, 320, 240);
+
+        assertThat(new PerceptualProcessor().detectCollisions(a, b, c)).isEmpty();
+    }
+
+    @Test
+    void unreadable_files_are_ignored() throws IOException {
+        var a = havingPhoto(directory, "a.png", "png", 1, 320, 240);
+        var b = havingPhoto(directory, "b.jpg", "jpg", 1, 320, 240);
+        var text = new IOImage(Files.writeString(directory.resolve("notes.txt"), "not an image"));
+
+        assertThat(new PerceptualProcessor().detectCollisions(a, text, b)).hasSize(1);
+    }
+
+    @Test
+    void duplicates_are_within_the_threshold_of_their_original() {
+        var original = fingerprinted("original.png", 3, 0L);
+        var near = fingerprinted("near.png", 2, 0xFFL);
+        var far = fingerprinted("far.png", 1, 0xFFFFL);
+
+        var collisions = new PerceptualProcessor(8).detectCollisions(far, near, original);
+
+        assertThat(collisions).singleElement().satisfies(collision -> {
+            assertThat(collision.original()).isEqualTo(original);
+            assertThat(collision.duplicates()).containsExactly(near);
+        });
+    }
+
+    @Test
+    void thresholds_must_fit_a_fingerprint() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new PerceptualProcessor(64));
+        assertThatIllegalArgumentException().isThrownBy(() -> new PerceptualProcessor(-1));
+    }
+
+
+    // An image whose thumbnail yields the given fingerprint, larger images being listed as better originals
+    private static Image fingerprinted(String name, int size, long fingerprint) {
+        return new Image() {
+            @Override
+            public Path path() {
+                return Path.of(name);
+            }
+
+            @Override
+            public String format() {
+                return "png";
+            }
+
+            @Override
+            public long weight() {
+                return size;
+            }
+
+            @Override
+            public int width() {
+                return size;
+            }
+
+            @Override
+            public int height() {
+                return size;
+            }
+
+            @Override
+            public int[] pixels() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int[] thumbnail(int width, int height) {
+                var thumbnail = new int[width * height];
+                for (int y = 0; y < height; y++) {
+                    thumbnail[y * width] = 128;
+                    for (int x = 1; x < width; x++) {
+                        boolean brighter = (fingerprint >>> (Long.SIZE - 1 - (y * (width - 1) + x - 1)) & 1) != 0;
+                        thumbnail[y * width + x] = thumbnail[y * width + x - 1] + (brighter ? 1 : -1);
+                    }
+                }
+                return thumbnail;
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,37 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+import net.agiledeveloper.nodup.image.IOImage;
+import net.agiledeveloper.nodup.image.Image;
+
+import javax.imageio.ImageIO;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+final class Photos {
+
+    private Photos() { }
+
+
+    // Smooth shapes whose layout depends on the seed, drawn at any size
+    static Image havingPhoto(Path directory, String name, String format, int seed, int width, int height) throws IOException {
+        var source = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                double value = Math.sin(x * 0.02 * seed + seed) + Math.cos(y * 0.03 * seed - seed) + Math.sin((x + y) * 0.01 * seed);
+                int gray = (int) ((value + 3) / 6 * 255);
+                source.setRGB(x, y, gray << 16 | (255 - gray) << 8 | (gray / 2));
+            }
+        }
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+        Path file = directory.resolve(name);
+        ImageIO.write(image, format, file.toFile());
+        return new IOImage(file);
+    }
+
+}
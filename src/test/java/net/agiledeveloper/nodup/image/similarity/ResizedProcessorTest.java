@@ -0,0 +1,50 @@
+package net.agiledeveloper.nodup.image.similarity;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static net.agiledeveloper.nodup.image.similarity.Photos.havingPhoto;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResizedProcessorTest {
+
+    @TempDir
+    private Path directory;
+
+
+    @Test
+    void resized_copies_with_the_same_aspect_ratio_are_grouped() throws IOException {
+        var original = havingPhoto(directory, "original.png", "png", 1, 640, 480);
+        var export = havingPhoto(directory, "export.jpg", "jpg", 1, 160, 120);
+        var rounded = havingPhoto(directory, "rounded.png", "png", 1, 199, 149);
+        var other = havingPhoto(directory, "other.png", "png", 2, 640, 480);
+
+        var collisions = new ResizedProcessor().detectCollisions(export, other, rounded, original);
+
+        assertThat(collisions).hasSize(1);
+        var collision = collisions.iterator().next();
+        assertThat(collision.original()).isEqualTo(original);
+        assertThat(collision.duplicates()).containsExactlyInAnyOrder(export, rounded);
+    }
+
+    @Test
+    void stretched_copies_are_not_grouped() throws IOException {
+        var original = havingPhoto(directory, "original.png", "png", 1, 640, 480);
+        var stretched = havingPhoto(directory, "stretched.png", "png", 1, 640, 360);
+
+        assertThat(new ResizedProcessor().detectCollisions(original, stretched)).isEmpty();
+    }
+
+    @Test
+    void different_photos_are_not_grouped() throws IOException {
+        var a = havingPhoto(directory, "a.png", "png", 1, 320, 240);
+        var b = havingPhoto(directory, "b.png", "png", 2, 160, 120);
+        var c = havingPhoto(directory, "c.png", "png", 3, 320, 240);
+
+        assertThat(new ResizedProcessor().detectCollisions(a, b, c)).isEmpty();
+    }
+
+}
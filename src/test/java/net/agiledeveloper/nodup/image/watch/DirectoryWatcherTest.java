@@ -0,0 +1,108 @@
+package net.agiledeveloper.nodup.image.watch;
+
+import net.agiledeveloper.nodup.App.Action;
+import net.agiledeveloper.nodup.bin.Bin;
+import net.agiledeveloper.nodup.bin.Bin.PathProvider;
+import net.agiledeveloper.nodup.image.RecursiveImageProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static net.agiledeveloper.nodup.image.RecursiveImageProvider.UNLIMITED_DEPTH;
+import static net.agiledeveloper.stubs.TinyImages.havingTinyImage;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DirectoryWatcherTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @TempDir
+    private Path directory;
+
+    @TempDir
+    private Path binDirectory;
+
+    private DirectoryWatcher watcher;
+    private Thread thread;
+
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        watcher.close();
+        thread.join(TIMEOUT.toMillis());
+    }
+
+
+    @Test
+    void move_duplicates_appearing_in_watched_subdirectories_to_bin() throws IOException, InterruptedException {
+        havingImage("a.png", 0xFF336699);
+        watching(directory);
+
+        havingImage("2024/06/b.png", 0xFF336699);
+
+        awaitBinnedFiles(1);
+        assertThat(directory.resolve("a.png")).exists();
+        assertThat(directory.resolve("2024/06/b.png")).doesNotExist();
+        assertThat(binDirectory.resolve("current/b.png")).exists();
+    }
+
+    @Test
+    void keep_images_with_different_pixels() throws IOException, InterruptedException {
+        havingImage("a.png", 0xFF336699);
+        watching(directory);
+
+        havingImage("b.png", 0xFF996633);
+        havingImage("c.png", 0xFF336699);
+
+        awaitBinnedFiles(1);
+        assertThat(Files.exists(directory.resolve("b.png"))).isTrue();
+    }
+
+
+    private void watching(Path root) {
+        Bin bin = new Bin(new PathProvider() {
+            @Override
+            public Path root() {
+                return binDirectory;
+            }
+
+            @Override
+            public Path currentBin() {
+                return binDirectory.resolve("current");
+            }
+        });
+        watcher = new DirectoryWatcher(new RecursiveImageProvider(UNLIMITED_DEPTH, 1), bin, Action.MOVE, Duration.ofMillis(50));
+        thread = new Thread(() -> watcher.watch(List.of(root)));
+        thread.start();
+    }
+
+    private void awaitBinnedFiles(int count) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (binnedFiles() < count && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(binnedFiles()).isEqualTo(count);
+    }
+
+    private long binnedFiles() throws IOException {
+        Path bin = binDirectory.resolve("current");
+        if (!Files.isDirectory(bin)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(bin)) {
+            return files.count();
+        }
+    }
+
+    private void havingImage(String name, int rgb) throws IOException {
+        havingTinyImage(directory, name, "png", rgb);
+    }
+
+}
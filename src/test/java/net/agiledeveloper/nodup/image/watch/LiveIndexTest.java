@@ -0,0 +1,90 @@
+package net.agiledeveloper.nodup.image.watch;
+
+import net.agiledeveloper.nodup.image.Image;
+import net.agiledeveloper.nodup.image.hash.Hash;
+import net.agiledeveloper.nodup.image.hash.HashAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.agiledeveloper.stubs.StubImage.ImageBuilder.aCatImage;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveIndexTest {
+
+    private final LiveIndex index = new LiveIndex();
+    private final AtomicInteger decodeAttempts = new AtomicInteger();
+
+
+    @Test
+    void undecodable_candidates_do_not_prevent_finding_duplicates() {
+        Image broken = undecodable(aCatImage().named("broken").build());
+        Image original = aCatImage().named("original").build();
+        Image copy = aCatImage().named("copy").build();
+        index.add(broken);
+
+        index.add(original);
+        var duplicated = index.add(copy);
+
+        assertThat(duplicated).containsSame(original);
+        assertThat(decodeAttempts).hasValue(1);
+    }
+
+    @Test
+    void undecodable_candidates_are_remembered_until_they_change() {
+        Image broken = undecodable(aCatImage().named("broken").build());
+        index.add(broken);
+        index.add(aCatImage().named("original").build());
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.contains(broken.path())).isTrue();
+
+        index.remove(broken.path());
+
+        assertThat(index.contains(broken.path())).isFalse();
+    }
+
+
+    private Image undecodable(Image image) {
+        return new Image() {
+            @Override
+            public Path path() {
+                return image.path();
+            }
+
+            @Override
+            public String format() {
+                return image.format();
+            }
+
+            @Override
+            public long weight() {
+                return image.weight();
+            }
+
+            @Override
+            public int width() {
+                return image.width();
+            }
+
+            @Override
+            public int height() {
+                return image.height();
+            }
+
+            @Override
+            public int[] pixels() throws IOException {
+                return image.pixels();
+            }
+
+            @Override
+            public Hash hash(HashAlgorithm algorithm) {
+                decodeAttempts.incrementAndGet();
+                throw new ReadException("Unsupported compression");
+            }
+        };
+    }
+
+}
@@ -0,0 +1,24 @@
+package net.agiledeveloper.stubs;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public final class TinyImages {
+
+    private TinyImages() { }
+
+
+    // A black 4x4 image with a single pixel of the given color: same colors give identical pixels in any lossless format
+    public static Path havingTinyImage(Path directory, String name, String format, int rgb) throws IOException {
+        var image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(1, 2, rgb);
+        Path file = directory.resolve(name);
+        Files.createDirectories(file.getParent());
+        ImageIO.write(image, format, file.toFile());
+        return file;
+    }
+
+}